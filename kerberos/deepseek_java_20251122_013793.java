@@ -0,0 +1,31 @@
+// SolaceRetryEvent.java
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("solace.ConnectRetry")
+@Label("Solace Connect Retry")
+@Category({"Solace"})
+@Description("Decision taken after a failed connect attempt")
+public class SolaceRetryEvent extends jdk.jfr.Event {
+    @Label("Client")
+    String client;
+
+    @Label("Authentication Error")
+    boolean authError;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Backoff")
+    @Timespan(Timespan.MILLISECONDS)
+    long delayMs;
+
+    @Label("Retries Exhausted")
+    boolean exhausted;
+
+    @Label("Error")
+    String error;
+}
\ No newline at end of file
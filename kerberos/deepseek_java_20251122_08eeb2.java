@@ -0,0 +1,5 @@
+// ConnectionStateListener.java
+// Called on the client's event thread in transition order; a slow listener delays every other one
+public interface ConnectionStateListener {
+    void onStateChange(ConnectionState previous, ConnectionState current);
+}
\ No newline at end of file
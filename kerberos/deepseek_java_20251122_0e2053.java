@@ -0,0 +1,564 @@
+// SolaceConsumer.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+// Moves messages off the JCSMP dispatcher thread onto partitioned workers; order is kept per key
+public class SolaceConsumer implements XMLMessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(SolaceConsumer.class);
+
+    // Slice of the bounded wait for room in a full partition before a direct message is dropped
+    private static final long OVERFLOW_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final SolaceClient client;
+    private final String name;
+    private final Function<BytesXMLMessage, ?> keyExtractor;
+    private final MessageHandler handler;
+    private final Worker[] workers;
+    private final int ackBatchSize;
+    private final Timer handlerTimer;
+    private final Counter handlerFailures;
+    private final Counter dispatchStalls;
+    private final Counter droppedMessages;
+    private final Counter heldMessages;
+    private final long directOverflowWaitNanos;
+    private final Timer throttledTimer;
+    private final int highWatermark;
+    private final int lowWatermark;
+    // Flow control: the flow-control thread alone starts, stops and closes flows. The dispatcher and the
+    // workers only raise these requests and wake it, so neither ever waits behind a JCSMP flow call.
+    private final AtomicBoolean throttleRequested = new AtomicBoolean();
+    private final AtomicBoolean resumeRequested = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<FlowReceiver> addedFlows = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<FlowReceiver> retiredFlows = new ConcurrentLinkedQueue<>();
+    private final ConsumerParker controlParker = new ConsumerParker();
+    private final BooleanSupplier controlHasWork = this::controlHasWork;
+    // Written by the flow-control thread only: set while queue flows are stopped because a partition
+    // crossed the high watermark
+    private volatile boolean throttled;
+    private volatile boolean controlStopping;
+    private long throttledSinceNanos;
+    private Thread controlThread;
+
+    private final List<String> queueNames = new CopyOnWriteArrayList<>();
+    // A set, since the client routes a listener once per subscribe and a repeated topic would deliver twice
+    private final Set<String> subscriptions = new CopyOnWriteArraySet<>();
+    // Every open flow, for reopenFlows() to retire; the flow-control thread keeps its own view
+    private final List<FlowReceiver> flows = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    SolaceConsumer(SolaceClient client, String name, SolaceConfig config, ClientMetrics metrics,
+                   Function<BytesXMLMessage, ?> keyExtractor, MessageHandler handler) {
+        this.client = client;
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.handler = handler;
+        this.ackBatchSize = Math.max(1, config.getConsumerAckBatchSize());
+        this.handlerTimer = metrics.timer("solace.consume.handler", "consumer", name);
+        this.handlerFailures = metrics.counter("solace.consume.failures", "consumer", name);
+        this.dispatchStalls = metrics.counter("solace.consume.dispatch.stalls", "consumer", name);
+        this.droppedMessages = metrics.counter("solace.consume.overflow", "consumer", name, "outcome", "dropped");
+        this.heldMessages = metrics.counter("solace.consume.overflow", "consumer", name, "outcome", "held");
+        this.directOverflowWaitNanos = TimeUnit.MICROSECONDS.toNanos(config.getConsumerDirectOverflowWaitMicros());
+
+        int workerCount = config.getConsumerWorkerThreads() > 0
+            ? config.getConsumerWorkerThreads()
+            : Runtime.getRuntime().availableProcessors();
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i, config.getConsumerPartitionCapacity());
+        }
+
+        int capacity = workers[0].queue.capacity();
+        this.highWatermark = Math.max(1, capacity * config.getConsumerFlowHighWatermarkPercent() / 100);
+        this.lowWatermark = Math.min(highWatermark - 1, capacity * config.getConsumerFlowLowWatermarkPercent() / 100);
+        this.throttledTimer = metrics.timer("solace.consume.throttled", "consumer", name);
+        metrics.gauge("solace.consume.backlog", this, SolaceConsumer::getBacklog, "consumer", name);
+    }
+
+    public SolaceConsumer bindQueue(String queueName) throws SolaceConnectionException {
+        queueNames.add(queueName);
+        if (running) {
+            openFlow(queueName);
+        }
+        return this;
+    }
+
+    public SolaceConsumer subscribe(String topic) throws SolaceConnectionException {
+        return subscribe(Collections.singletonList(topic));
+    }
+
+    // Thousands of topics cost one broker round-trip rather than one each. Topics already subscribed are skipped.
+    public synchronized SolaceConsumer subscribe(Collection<String> topics) throws SolaceConnectionException {
+        Set<String> added = new LinkedHashSet<>(topics);
+        added.removeAll(subscriptions);
+        if (added.isEmpty()) {
+            return this;
+        }
+        if (running) {
+            client.subscribe(added, this);
+        }
+        subscriptions.addAll(added);
+        return this;
+    }
+
+    public synchronized SolaceConsumer unsubscribe(Collection<String> topics) {
+        List<String> removed = new ArrayList<>();
+        for (String topic : topics) {
+            if (subscriptions.remove(topic)) {
+                removed.add(topic);
+            }
+        }
+        if (running && !removed.isEmpty()) {
+            client.unsubscribe(removed, this);
+        }
+        return this;
+    }
+
+    public synchronized void start() throws SolaceConnectionException {
+        if (running) {
+            return;
+        }
+        running = true;
+        controlStopping = false;
+
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        controlThread = new Thread(this::controlFlows, "solace-consumer-" + name + "-flow-control");
+        controlThread.setDaemon(true);
+        controlThread.start();
+        for (String queueName : queueNames) {
+            openFlow(queueName);
+        }
+        if (!subscriptions.isEmpty()) {
+            client.subscribe(subscriptions, this);
+        }
+
+        logger.info("Solace consumer {} started with {} partitions ({} queues, {} subscriptions)",
+            name, workers.length, queueNames.size(), subscriptions.size());
+    }
+
+    private void openFlow(String queueName) throws SolaceConnectionException {
+        JCSMPSession session = requireSession();
+        ConsumerFlowProperties flowProperties = new ConsumerFlowProperties()
+            .setEndpoint(JCSMPFactory.onlyInstance().createQueue(queueName))
+            .setAckMode(JCSMPProperties.SUPPORTED_MESSAGE_ACK_CLIENT)
+            .addRequiredSettlementOutcomes(XMLMessage.Outcome.ACCEPTED, XMLMessage.Outcome.FAILED);
+
+        try {
+            FlowReceiver flow = session.createFlow(this, flowProperties, new EndpointProperties());
+            flows.add(flow);
+            // Started by the flow-control thread, or left stopped with the rest while throttled
+            addedFlows.add(flow);
+            controlParker.wake();
+            logger.info("Consumer {} bound to queue {}", name, queueName);
+        } catch (JCSMPException e) {
+            throw new SolaceConnectionException("Failed to bind consumer to queue " + queueName, e);
+        }
+    }
+
+    // Called by the client once it has replaced its session; the broker redelivers anything unacknowledged
+    synchronized void reopenFlows() {
+        if (!running || queueNames.isEmpty()) {
+            return;
+        }
+        retiredFlows.addAll(flows);
+        flows.clear();
+        controlParker.wake();
+        for (String queueName : queueNames) {
+            try {
+                openFlow(queueName);
+            } catch (SolaceConnectionException e) {
+                logger.error("Consumer {} failed to rebind queue {}: {}", name, queueName, e.getMessage());
+            }
+        }
+    }
+
+    private JCSMPSession requireSession() throws SolaceConnectionException {
+        JCSMPSession session = client.currentSession();
+        if (session == null || session.isClosed()) {
+            throw new SolaceConnectionException("Solace session " + client.getName() + " is not connected");
+        }
+        return session;
+    }
+
+    // Runs on the JCSMP dispatcher thread, so it only routes: it never calls the handler, and a full
+    // partition never holds it for longer than the direct overflow wait
+    @Override
+    public void onReceive(BytesXMLMessage message) {
+        if (!running) {
+            // The workers may already have finished, so the message would never be settled
+            refuse(message);
+            return;
+        }
+
+        Worker worker = workers[partitionOf(message)];
+        boolean queued = message.getDeliveryMode() == DeliveryMode.DIRECT
+            ? dispatchDirect(worker, message)
+            : dispatchGuaranteed(worker, message);
+        if (queued && worker.backlog() >= highWatermark) {
+            requestThrottle();
+        }
+    }
+
+    // Guaranteed messages are never waited for or dropped. The flows stop at the high watermark, so only what
+    // was already inside the flow window can find the partition full; it is held in the overflow list, and
+    // later messages for the partition follow it there so the partition keeps its order.
+    private boolean dispatchGuaranteed(Worker worker, BytesXMLMessage message) {
+        if (!worker.overflow.isEmpty() || !worker.queue.offer(message)) {
+            worker.overflow.add(message);
+            heldMessages.increment();
+        }
+        worker.parker.wake();
+        return true;
+    }
+
+    // The broker cannot hold direct messages back, so a full partition gets a bounded wait and then
+    // drops them; each wait is counted once, not per spin
+    private boolean dispatchDirect(Worker worker, BytesXMLMessage message) {
+        if (worker.offerDirect(message)) {
+            return true;
+        }
+        if (directOverflowWaitNanos > 0) {
+            dispatchStalls.increment();
+            long deadline = System.nanoTime() + directOverflowWaitNanos;
+            do {
+                LockSupport.parkNanos(OVERFLOW_PARK_NANOS);
+                if (worker.offerDirect(message)) {
+                    return true;
+                }
+            } while (running && System.nanoTime() - deadline < 0);
+        }
+
+        droppedMessages.increment();
+        if (worker.droppedDirect++ == 0) {
+            logger.warn("Consumer {} partition {} is full, dropping direct messages", name, worker.partition);
+        }
+        return false;
+    }
+
+    // A guaranteed message goes back to the broker for redelivery; a direct message is only counted
+    private void refuse(BytesXMLMessage message) {
+        if (message.getDeliveryMode() == DeliveryMode.DIRECT) {
+            droppedMessages.increment();
+            return;
+        }
+        try {
+            message.settle(XMLMessage.Outcome.FAILED);
+        } catch (JCSMPException e) {
+            // Left unacknowledged, it is redelivered once the flow is closed
+            logger.debug("Consumer {} could not return a message received while stopping: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onException(JCSMPException e) {
+        logger.error("Consumer {} received flow exception: {}", name, e.getMessage());
+    }
+
+    // Never blocks: only raises the request for the flow-control thread
+    private void requestThrottle() {
+        if (!throttled && !throttleRequested.get() && throttleRequested.compareAndSet(false, true)) {
+            controlParker.wake();
+        }
+    }
+
+    // Called by workers once their own partition is under the low watermark while throttled
+    private void requestResume() {
+        if (!resumeRequested.get() && resumeRequested.compareAndSet(false, true)) {
+            controlParker.wake();
+        }
+    }
+
+    private boolean controlHasWork() {
+        return controlStopping || throttleRequested.get() || resumeRequested.get()
+            || !addedFlows.isEmpty() || !retiredFlows.isEmpty();
+    }
+
+    // The flow-control thread. Stopping the flows makes the broker hold further guaranteed messages, so
+    // the heap only ever holds the partitions plus what was already in the flow window. Flows restart
+    // only once every partition is back under the low watermark.
+    private void controlFlows() {
+        // Every flow this thread owns, and whether it is started
+        Map<FlowReceiver, Boolean> owned = new IdentityHashMap<>();
+        while (!controlStopping) {
+            FlowReceiver flow;
+            while ((flow = addedFlows.poll()) != null) {
+                owned.put(flow, Boolean.FALSE);
+            }
+            while ((flow = retiredFlows.poll()) != null) {
+                owned.remove(flow);
+                flow.close();
+            }
+
+            if (throttleRequested.getAndSet(false) && !throttled && !owned.isEmpty() && anyPartitionAbove(highWatermark - 1)) {
+                throttled = true;
+                throttledSinceNanos = System.nanoTime();
+                stopFlows(owned);
+                logger.debug("Consumer {} throttled: a partition reached {} queued messages", name, highWatermark);
+            }
+            // Cleared before the partitions are read, so a worker that drains afterwards asks again. Also
+            // checked right after throttling, in case the partitions drained before the workers saw the flag.
+            resumeRequested.set(false);
+            if (throttled && !anyPartitionAbove(lowWatermark)) {
+                throttled = false;
+                throttledTimer.record(System.nanoTime() - throttledSinceNanos, TimeUnit.NANOSECONDS);
+                logger.debug("Consumer {} resumed", name);
+            }
+            if (!throttled) {
+                startFlows(owned);
+            }
+            controlParker.park(controlHasWork);
+        }
+
+        stopFlows(owned);
+        if (throttled) {
+            throttled = false;
+            throttledTimer.record(System.nanoTime() - throttledSinceNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean anyPartitionAbove(int watermark) {
+        for (Worker worker : workers) {
+            if (worker.backlog() > watermark) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startFlows(Map<FlowReceiver, Boolean> owned) {
+        for (Map.Entry<FlowReceiver, Boolean> entry : owned.entrySet()) {
+            if (!entry.getValue()) {
+                try {
+                    entry.getKey().start();
+                    entry.setValue(Boolean.TRUE);
+                } catch (JCSMPException e) {
+                    // Left stopped; it is retried on the next pass, and replaced when the session is
+                    logger.error("Consumer {} failed to start flow on {}: {}", name, entry.getKey().getDestination(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void stopFlows(Map<FlowReceiver, Boolean> owned) {
+        for (Map.Entry<FlowReceiver, Boolean> entry : owned.entrySet()) {
+            if (entry.getValue()) {
+                entry.getKey().stop();
+                entry.setValue(Boolean.FALSE);
+            }
+        }
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    public int getBacklog() {
+        int backlog = 0;
+        for (Worker worker : workers) {
+            backlog += worker.backlog();
+        }
+        return backlog;
+    }
+
+    private int partitionOf(BytesXMLMessage message) {
+        Object key = keyExtractor.apply(message);
+        int h;
+        if (key != null) {
+            h = key.hashCode();
+        } else {
+            Destination destination = message.getDestination();
+            h = destination != null ? destination.getName().hashCode() : 0;
+        }
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % workers.length;
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        // Stop delivery first so workers can drain and acknowledge what they already hold. The flow-control
+        // thread stops the flows on its way out, so a draining worker cannot resume them again.
+        controlStopping = true;
+        controlParker.wake();
+        try {
+            controlThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (controlThread.isAlive()) {
+            logger.warn("Consumer {} flow-control thread did not stop within 10s", name);
+        }
+        controlThread = null;
+        running = false;
+        for (Worker worker : workers) {
+            worker.parker.wake();
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+
+        // Retired flows the flow-control thread did not get to are closed here as well
+        FlowReceiver retired;
+        while ((retired = retiredFlows.poll()) != null) {
+            retired.close();
+        }
+        addedFlows.clear();
+        for (FlowReceiver flow : flows) {
+            flow.close();
+        }
+        flows.clear();
+
+        client.unsubscribe(subscriptions, this);
+        logger.info("Solace consumer {} stopped", name);
+    }
+
+    public interface MessageHandler {
+        void onMessage(BytesXMLMessage message) throws Exception;
+    }
+
+    private final class Worker implements Runnable {
+        private final int partition;
+        private final MpscRingBuffer<BytesXMLMessage> queue;
+        // Guaranteed messages that arrived while the queue was full; the stopped flows keep this short
+        private final ConcurrentLinkedQueue<BytesXMLMessage> overflow = new ConcurrentLinkedQueue<>();
+        private final BytesXMLMessage[] pendingAcks;
+        private final ConsumerParker parker = new ConsumerParker();
+        private final BooleanSupplier hasWork;
+        private Thread thread;
+        // Dispatcher thread only: direct messages dropped since this partition last took one
+        private long droppedDirect;
+
+        Worker(int partition, int capacity) {
+            this.partition = partition;
+            this.queue = new MpscRingBuffer<>(capacity);
+            this.pendingAcks = new BytesXMLMessage[ackBatchSize];
+            this.hasWork = () -> !running || !queue.isEmpty() || !overflow.isEmpty();
+        }
+
+        // Dispatcher thread only. Never overtakes held guaranteed messages, so the partition keeps its order.
+        boolean offerDirect(BytesXMLMessage message) {
+            if (!overflow.isEmpty() || !queue.offer(message)) {
+                return false;
+            }
+            parker.wake();
+            if (droppedDirect > 0) {
+                logger.warn("Consumer {} partition {} accepts direct messages again after dropping {}",
+                    name, partition, droppedDirect);
+                droppedDirect = 0;
+            }
+            return true;
+        }
+
+        int backlog() {
+            return overflow.isEmpty() ? queue.size() : queue.size() + overflow.size();
+        }
+
+        void start() {
+            thread = new Thread(this, "solace-consumer-" + name + "-" + partition);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void join() {
+            if (thread == null) {
+                return;
+            }
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+
+        @Override
+        public void run() {
+            int pending = 0;
+            while (running || !queue.isEmpty() || !overflow.isEmpty()) {
+                // Held messages are newer than everything in the queue
+                BytesXMLMessage message = queue.poll();
+                if (message == null) {
+                    message = overflow.poll();
+                }
+                if (message == null) {
+                    pending = flushAcks(pending);
+                    if (throttled) {
+                        requestResume();
+                    }
+                    // Woken by onReceive, or by stop() so a stopped worker can exit
+                    parker.park(hasWork);
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                boolean handled = true;
+                try {
+                    handler.onMessage(message);
+                } catch (Exception e) {
+                    handled = false;
+                    handlerFailures.increment();
+                    logger.error("Handler failed on consumer {} partition {}", name, partition, e);
+                }
+                handlerTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                if (message.getDeliveryMode() != DeliveryMode.DIRECT) {
+                    if (!handled) {
+                        redeliver(message);
+                    } else {
+                        pendingAcks[pending++] = message;
+                        if (pending == pendingAcks.length) {
+                            pending = flushAcks(pending);
+                        }
+                    }
+                }
+                if (throttled && backlog() <= lowWatermark) {
+                    requestResume();
+                }
+            }
+            flushAcks(pending);
+        }
+
+        // The broker redelivers it; the queue's max-redelivery count and dead message queue
+        // take care of a message that never succeeds
+        private void redeliver(BytesXMLMessage message) {
+            try {
+                message.settle(XMLMessage.Outcome.FAILED);
+            } catch (JCSMPException e) {
+                // Left unacknowledged, it is redelivered once the flow is rebound
+                logger.error("Consumer {} could not return a failed message: {}", name, e.getMessage());
+            }
+        }
+
+        private int flushAcks(int pending) {
+            for (int i = 0; i < pending; i++) {
+                pendingAcks[i].ackMessage();
+                pendingAcks[i] = null;
+            }
+            return 0;
+        }
+    }
+}
\ No newline at end of file
@@ -6,9 +6,15 @@ import java.util.Map;
 
 public class ProgrammaticJaasConfig extends Configuration {
     private final String username;
+    private final boolean debug;
 
     public ProgrammaticJaasConfig(String username) {
+        this(username, false);
+    }
+
+    public ProgrammaticJaasConfig(String username, boolean debug) {
         this.username = username;
+        this.debug = debug;
     }
 
     @Override
@@ -19,7 +25,7 @@ public class ProgrammaticJaasConfig extends Configuration {
         options.put("useTicketCache", "false");
         options.put("isInitiator", "true");
         options.put("refreshKrb5Config", "true");
-        options.put("debug", "true"); // Enable for debugging, disable in production
+        options.put("debug", String.valueOf(debug)); // kerberos.debug; keep off in production
 
         return new AppConfigurationEntry[]{
             new AppConfigurationEntry(
@@ -0,0 +1,33 @@
+// RetryPolicy.java
+import java.util.concurrent.ThreadLocalRandom;
+
+// Exponential backoff with full jitter: each delay is uniform in [0, min(max, base * 2^(n-1))]
+public class RetryPolicy {
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int maxRetries;
+
+    public RetryPolicy(long baseDelayMs, long maxDelayMs, int maxRetries) {
+        if (baseDelayMs < 0 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException(
+                "Invalid backoff bounds: base=" + baseDelayMs + "ms, max=" + maxDelayMs + "ms");
+        }
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxRetries = maxRetries;
+    }
+
+    public boolean isExhausted(int failures) {
+        return failures > maxRetries;
+    }
+
+    public long delayMs(int failures) {
+        int shift = Math.min(Math.max(failures - 1, 0), 30);
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << shift);
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+// SolaceConnectEvent.java
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("solace.Connect")
+@Label("Solace Connect")
+@Category({"Solace"})
+@Description("Session creation and GSS-authenticated handshake with the broker")
+public class SolaceConnectEvent extends jdk.jfr.Event {
+    @Label("Client")
+    String client;
+
+    @Label("Host")
+    String host;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Error")
+    String error;
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+// ShardedSolaceClient.java
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class ShardedSolaceClient {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSolaceClient.class);
+
+    private final SolaceClient[] shards;
+
+    public ShardedSolaceClient(KerberosAuthManager authManager, SolaceConfig solaceConfig,
+                               ClientMetrics metrics, SolaceClient primary) {
+        int shardCount = Math.max(1, solaceConfig.getShardCount());
+        this.shards = new SolaceClient[shardCount];
+
+        // The primary bean is shard 0, so single-shard deployments keep exactly one session
+        shards[0] = primary;
+        for (int i = 1; i < shardCount; i++) {
+            shards[i] = new SolaceClient(authManager, solaceConfig, metrics, "shard-" + i);
+        }
+    }
+
+    public void connect() throws SolaceConnectionException, KerberosAuthException {
+        logger.info("Connecting {} Solace shard(s)", shards.length);
+        for (SolaceClient shard : shards) {
+            shard.connect();
+        }
+    }
+
+    public void prepare() {
+        for (SolaceClient shard : shards) {
+            shard.prepare();
+        }
+    }
+
+    public CompletableFuture<Void> connectAsync() {
+        logger.info("Connecting {} Solace shard(s) asynchronously", shards.length);
+        CompletableFuture<?>[] attempts = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            attempts[i] = shards[i].connectAsync();
+        }
+        return CompletableFuture.allOf(attempts);
+    }
+
+    // Equal keys always map to the same shard, which preserves per-key ordering
+    public SolaceClient shardFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return shards[(h & 0x7fffffff) % shards.length];
+    }
+
+    public SolaceClient getShard(int index) {
+        return shards[index];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public boolean publish(String key, String topic, byte[] payload) {
+        return shardFor(key).publish(topic, payload);
+    }
+
+    public boolean publish(String topic, byte[] payload) {
+        return publish(topic, topic, payload);
+    }
+
+    public boolean publish(String key, String topic, ByteBuffer payload) {
+        return shardFor(key).publish(topic, payload);
+    }
+
+    public boolean isConnected() {
+        for (SolaceClient shard : shards) {
+            if (!shard.isConnected()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Shard 0 is owned by the container and shut down separately
+    public void shutdown() {
+        for (int i = 1; i < shards.length; i++) {
+            shards[i].shutdown();
+        }
+        logger.info("ShardedSolaceClient shutdown complete");
+    }
+}
\ No newline at end of file
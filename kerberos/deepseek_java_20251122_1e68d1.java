@@ -0,0 +1,108 @@
+// TopicMatchHarness.java
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Checks TopicTrie against Solace subscription semantics, prefix wildcards included, and that matching
+// allocates nothing once warm. Exits non-zero on the first mismatch or when a match allocates.
+// Usage: java TopicMatchHarness [--matches=1000000]
+public class TopicMatchHarness {
+    private static final BiConsumer<String, List<String>> COLLECT = (value, matches) -> matches.add(value);
+    private static final BiConsumer<String, Object> IGNORE = (value, argument) -> { };
+
+    private int failures;
+
+    public static void main(String[] args) {
+        HarnessSupport.Options options = new HarnessSupport.Options(args);
+        TopicMatchHarness harness = new TopicMatchHarness();
+        harness.checkMatches();
+        harness.checkAllocation(options.get("matches", 1_000_000));
+        if (harness.failures > 0) {
+            System.out.printf("FAIL: %d check(s) failed%n", harness.failures);
+            System.exit(1);
+        }
+        System.out.println("All topic match checks passed");
+    }
+
+    void checkMatches() {
+        TopicTrie<String> trie = new TopicTrie<>();
+        for (String subscription : Arrays.asList("a/b*", "a/b*/>", "a/*/c", "a/b/c", "a/>", "a*b/c", "orders/us*",
+                "orders/us*/new", "x/*")) {
+            trie.add(subscription, subscription);
+        }
+
+        expect(trie, "a/bc", "a/b*", "a/>");
+        expect(trie, "a/b", "a/b*", "a/>");
+        expect(trie, "a/c", "a/>");
+        expect(trie, "a/bc/d", "a/b*/>", "a/>");
+        expect(trie, "a/b/c", "a/b*/>", "a/*/c", "a/b/c", "a/>");
+        expect(trie, "a/xb/c", "a/*/c", "a/>");
+        // A '*' that does not end its level is literal
+        expect(trie, "a*b/c", "a*b/c");
+        expect(trie, "axb/c");
+        expect(trie, "orders/us", "orders/us*");
+        expect(trie, "orders/us-east", "orders/us*");
+        expect(trie, "orders/us-east/new", "orders/us*/new");
+        expect(trie, "orders/u");
+        expect(trie, "x/y", "x/*");
+        expect(trie, "x/y/z");
+
+        check(trie.remove("a/b*", "a/b*"), "remove a/b*");
+        check(!trie.remove("a/b*", "a/b*"), "second remove of a/b* finds nothing");
+        expect(trie, "a/bc", "a/>");
+        expect(trie, "a/bc/d", "a/b*/>", "a/>");
+        check(trie.remove("a/b*/>", "a/b*/>"), "remove a/b*/>");
+        expect(trie, "a/bc/d", "a/>");
+
+        List<String> all = new ArrayList<>();
+        trie.forEachValue(all::add);
+        check(all.size() == trie.size() && all.size() == 7, "forEachValue visits the 7 remaining subscriptions");
+    }
+
+    void checkAllocation(long matches) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not report per-thread allocation");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        TopicTrie<String> trie = new TopicTrie<>();
+        for (String subscription : Arrays.asList("orders/us*/>", "orders/*/new", "orders/eu/new", "orders/>")) {
+            trie.add(subscription, subscription);
+        }
+        String[] topics = {"orders/us-east/new", "orders/eu/new", "orders/apac/cancelled"};
+        long sink = 0;
+        for (int i = 0; i < matches / 4; i++) {
+            sink += trie.forEachMatch(topics[i % topics.length], IGNORE, null);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < matches; i++) {
+            sink += trie.forEachMatch(topics[i % topics.length], IGNORE, null);
+        }
+        double perMatch = (threads.getThreadAllocatedBytes(thread) - before) / (double) matches;
+        System.out.printf("matching: %.3f bytes/match (%d matches delivered)%n", perMatch, sink);
+        check(perMatch < 1, "matching allocates nothing once warm");
+    }
+
+    private void expect(TopicTrie<String> trie, String topic, String... expected) {
+        List<String> matches = new ArrayList<>();
+        int count = trie.forEachMatch(topic, COLLECT, matches);
+        List<String> sortedExpected = new ArrayList<>(Arrays.asList(expected));
+        sortedExpected.sort(null);
+        matches.sort(null);
+        check(count == expected.length && matches.equals(sortedExpected),
+            topic + " matches " + sortedExpected + ", got " + matches);
+    }
+
+    private void check(boolean passed, String description) {
+        if (!passed) {
+            failures++;
+            System.out.println("FAIL: " + description);
+        }
+    }
+}
\ No newline at end of file
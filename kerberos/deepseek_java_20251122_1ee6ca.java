@@ -0,0 +1,137 @@
+// KdcFailoverHarness.java
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Relogins against several embedded KDCs while one of them degrades. Logins go through the JDK's Krb5LoginModule,
+// so what is measured includes how the JDK follows the process-wide KDC order that each attempt sets, its own
+// fallback to the next KDC once one times out, and the manager's failover once an attempt fails.
+// Each KDC listens on port 88 of its own loopback address (127.0.0.1, 127.0.0.2, ...), so run it as root or
+// with CAP_NET_BIND_SERVICE; java.security.krb5.kdc cannot carry a port to move the KDCs elsewhere.
+// Usage: java KdcFailoverHarness [--kdcs=3] [--kdc-latency-ms=10] [--slow-latency-ms=1500]
+//                                [--kdc-timeout-ms=3000] [--warmup=20] [--relogins=100] [--flaky-percent=5]
+public class KdcFailoverHarness {
+    private static final String PRINCIPAL = "harness";
+    private static final String PASSWORD = "secret";
+
+    private final HarnessSupport.Options options;
+    private final List<EmbeddedKdc> kdcs = new ArrayList<>();
+
+    KdcFailoverHarness(HarnessSupport.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        KdcFailoverHarness harness = new KdcFailoverHarness(new HarnessSupport.Options(args));
+        try {
+            harness.setUp();
+            harness.run();
+        } finally {
+            harness.tearDown();
+        }
+    }
+
+    void setUp() throws Exception {
+        // The manager puts the KDC list and realm in system properties; the rest of the client settings come
+        // from this file. A black-holed KDC then costs one timeout instead of the JDK's default three of 30s,
+        // and only AES keys are derived from the password, so a login costs the KDC round trips rather than
+        // the slowest string-to-key the JDK supports.
+        Path krb5Conf = Files.createTempFile("kdc-failover-harness", ".conf");
+        krb5Conf.toFile().deleteOnExit();
+        Files.write(krb5Conf, Arrays.asList(
+            "[libdefaults]",
+            "    default_realm = " + HarnessSupport.REALM,
+            "    kdc_timeout = " + options.get("kdc-timeout-ms", 3000),
+            "    max_retries = 1",
+            "    default_tkt_enctypes = aes256-cts-hmac-sha1-96 aes128-cts-hmac-sha1-96",
+            "    permitted_enctypes = aes256-cts-hmac-sha1-96 aes128-cts-hmac-sha1-96"));
+        System.setProperty("java.security.krb5.conf", krb5Conf.toString());
+
+        for (int i = 0; i < options.get("kdcs", 3); i++) {
+            EmbeddedKdc kdc = new EmbeddedKdc(HarnessSupport.REALM, "127.0.0." + (i + 1));
+            kdc.addPrincipal(PRINCIPAL, PASSWORD);
+            kdcs.add(kdc);
+        }
+    }
+
+    void run() throws Exception {
+        EmbeddedKdc degraded = kdcs.get(0);
+        long slowMs = options.get("slow-latency-ms", 1500);
+        long flakyPercent = options.get("flaky-percent", 5);
+
+        System.out.printf("%-16s %8s %8s %8s %8s %8s  %s%n",
+            "scenario", "p50ms", "p90ms", "p99ms", "maxms", "failed", "kdcReqs");
+        scenario("healthy", () -> { });
+        scenario("degraded", () -> degraded.extraLatencyMs = slowMs);
+        scenario("flaky", () -> {
+            degraded.spikeLatencyMs = slowMs;
+            degraded.spikePercent = flakyPercent;
+        });
+        // Requests go unanswered, so each one costs the client kdc-timeout-ms before it falls back
+        scenario("down", () -> degraded.unavailable = true);
+    }
+
+    void tearDown() {
+        for (EmbeddedKdc kdc : kdcs) {
+            kdc.close();
+        }
+    }
+
+    private void scenario(String name, Runnable fault) throws Exception {
+        long latencyMs = options.get("kdc-latency-ms", 10);
+        List<String> hosts = new ArrayList<>();
+        for (EmbeddedKdc kdc : kdcs) {
+            kdc.reset(latencyMs);
+            hosts.add(kdc.getHost());
+        }
+
+        KerberosConfig config = new KerberosConfig();
+        config.setKdcs(hosts);
+        config.setRealm(HarnessSupport.REALM);
+        config.setRefreshAwaitTimeoutMs(TimeUnit.MINUTES.toMillis(1));
+        config.setRotationGracePeriodMs(100);
+
+        ClientMetrics metrics = new ClientMetrics(new SimpleMeterRegistry());
+        KerberosAuthManager manager = new KerberosAuthManager(config, metrics,
+            PRINCIPAL, PASSWORD.toCharArray(), new ProgrammaticJaasConfig(PRINCIPAL));
+        try {
+            manager.start();
+            for (int i = 0; i < options.get("warmup", 20); i++) {
+                manager.awaitRefresh();
+            }
+
+            fault.run();
+            for (EmbeddedKdc kdc : kdcs) {
+                kdc.asRequests.set(0);
+            }
+
+            HarnessSupport.LatencyRecorder relogins = new HarnessSupport.LatencyRecorder();
+            int failed = 0;
+            for (int i = 0; i < options.get("relogins", 100); i++) {
+                long start = System.nanoTime();
+                try {
+                    manager.awaitRefresh();
+                    relogins.record(System.nanoTime() - start);
+                } catch (KerberosAuthException e) {
+                    failed++;
+                }
+            }
+
+            // Two AS requests per login: the first is answered with a demand for pre-authentication
+            StringBuilder requests = new StringBuilder();
+            for (EmbeddedKdc kdc : kdcs) {
+                requests.append(requests.length() == 0 ? "" : "/").append(kdc.asRequests.get());
+            }
+            System.out.printf("%-16s %8.1f %8.1f %8.1f %8.1f %8d  %s%n", name,
+                relogins.percentileMillis(50), relogins.percentileMillis(90), relogins.percentileMillis(99),
+                relogins.percentileMillis(100), failed, requests);
+        } finally {
+            manager.shutdown();
+        }
+    }
+}
\ No newline at end of file
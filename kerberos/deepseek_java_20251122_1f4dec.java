@@ -1,130 +1,871 @@
 // SolaceClient.java
 import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import javax.security.auth.Subject;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
 
 @Component
 public class SolaceClient {
     private static final Logger logger = LoggerFactory.getLogger(SolaceClient.class);
+    private static final ConnectionState[] STATES = ConnectionState.values();
 
     private final KerberosAuthManager authManager;
     private final SolaceConfig solaceConfig;
-    private final AtomicReference<ConnectionState> connectionState = 
-        new AtomicReference<>(ConnectionState.DISCONNECTED);
-    private final AtomicInteger connectionAttempts = new AtomicInteger(0);
+    private final String name;
+    // Client names must be unique within the Message VPN, so each session gets this plus its own number
+    private final String clientNamePrefix;
+    private final AtomicLong sessionSequence = new AtomicLong();
+    // Transition sequence number in the high bits, ConnectionState ordinal in the low byte, so one CAS
+    // both moves the state and orders the change for listeners
+    private final AtomicLong stateWord = new AtomicLong(ConnectionState.DISCONNECTED.ordinal());
+    private final ConnectionEventDispatcher events;
+    private final ClientMetrics metrics;
+    private final SolaceSessionFactory sessionFactory;
+    private final Counter connectionAttempts;
+    private final Counter hedgedConnects;
+    private final Counter standbyPromotions;
+    private final EndpointLatencyTracker hostTracker;
+    private final SolacePublisher publisher;
+    private final GuaranteedPublisher guaranteedPublisher;
+    private final SolaceRequestor requestor;
+    private final DirectMessageRouter directRouter = new DirectMessageRouter();
+    private final List<SolaceConsumer> consumers = new CopyOnWriteArrayList<>();
+    // Broker-side topic subscriptions, reference counted across consumers; guarded by itself
+    private final Map<String, Integer> subscriptionCounts = new HashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> pendingConnect = new AtomicReference<>();
+    private final RetryPolicy authRetryPolicy;
+    private final RetryPolicy connectRetryPolicy;
+    private final ScheduledExecutorService reconnectScheduler;
+    // Runs hedged handshakes against further hosts while the reconnect thread waits for the first winner
+    private final ExecutorService connectExecutor;
+    // A second connected, subscribed session to promote when the current one fails; null until one is ready
+    private final AtomicReference<Standby> standby = new AtomicReference<>();
+    private final AtomicBoolean standbyBuilding = new AtomicBoolean();
+    private volatile int standbyFailures;
     
-    private JCSMPSession session;
+    private volatile JCSMPSession session;
+    private volatile String sessionHost;
+    // The session that currently holds every subscription in subscriptionCounts
+    private volatile JCSMPSession subscribedSession;
+    private volatile Map<String, JCSMPProperties> preparedProperties;
+    private volatile long connectStartNanos;
 
-    public SolaceClient(KerberosAuthManager authManager, SolaceConfig solaceConfig) {
+    @Autowired
+    public SolaceClient(KerberosAuthManager authManager, SolaceConfig solaceConfig, ClientMetrics metrics) {
+        this(authManager, solaceConfig, metrics, "primary");
+    }
+
+    // Additional shards share the auth manager (and therefore the Subject) but own their session
+    SolaceClient(KerberosAuthManager authManager, SolaceConfig solaceConfig, ClientMetrics metrics, String name) {
+        this(authManager, solaceConfig, metrics, name, SolaceSessionFactory.JCSMP);
+    }
+
+    SolaceClient(KerberosAuthManager authManager, SolaceConfig solaceConfig, ClientMetrics metrics,
+                 String name, SolaceSessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
         this.authManager = authManager;
         this.solaceConfig = solaceConfig;
+        this.metrics = metrics;
+        this.name = name;
+        // "pid@host", so neither other pods nor other processes on this host share the prefix
+        this.clientNamePrefix = ManagementFactory.getRuntimeMXBean().getName() + "/" + name;
+        this.events = new ConnectionEventDispatcher(name);
+        addStateListener(this::recordStateChange);
+        this.connectionAttempts = metrics.counter("solace.connect.attempts", "client", name);
+        this.hedgedConnects = metrics.counter("solace.connect.hedged", "client", name);
+        this.standbyPromotions = metrics.counter("solace.standby.promotions", "client", name);
+        metrics.gauge("solace.standby.ready", standby, s -> s.get() != null ? 1 : 0, "client", name);
+        this.hostTracker = new EndpointLatencyTracker(solaceConfig.getHostList(),
+            solaceConfig.getConnectHedgePercentile(), solaceConfig.getConnectHedgeMinDelayMs(),
+            solaceConfig.getConnectHedgeMaxDelayMs(), solaceConfig.getHostFailurePenaltyMs());
+        for (String host : hostTracker.getEndpoints()) {
+            metrics.gauge("solace.host.latency", hostTracker, t -> t.latencyMillis(host), "client", name, "host", host);
+        }
+        this.publisher = new SolacePublisher(name, solaceConfig, metrics);
+        this.guaranteedPublisher = new GuaranteedPublisher(name, solaceConfig, metrics);
+        this.connectExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "solace-connect-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        this.requestor = new SolaceRequestor(this, name, solaceConfig, metrics, connectExecutor);
+        addStateListener((previous, current) -> {
+            publisher.setConnected(current == ConnectionState.CONNECTED);
+            guaranteedPublisher.setConnected(current == ConnectionState.CONNECTED);
+            if (previous == ConnectionState.CONNECTED) {
+                requestor.failInFlight("Solace connection " + name + " is " + current);
+            }
+        });
+        if (solaceConfig.isStandbyEnabled() && hostTracker.size() < 2) {
+            // A standby on the primary's own broker shares its failures, and can be refused or evict it
+            logger.warn("Standby session of {} disabled: it needs a second host in solace.hosts", name);
+        } else if (solaceConfig.isStandbyEnabled()) {
+            addStateListener((previous, current) -> {
+                if (current == ConnectionState.CONNECTED) {
+                    ensureStandby();
+                }
+            });
+        }
+        this.authRetryPolicy = new RetryPolicy(solaceConfig.getAuthRetryBaseDelayMs(),
+            solaceConfig.getAuthRetryMaxDelayMs(), solaceConfig.getMaxReconnectRetries());
+        this.connectRetryPolicy = new RetryPolicy(solaceConfig.getReconnectBaseDelayMs(),
+            solaceConfig.getReconnectMaxDelayMs(), solaceConfig.getMaxConnectRetries());
+        this.reconnectScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "solace-reconnect-" + name);
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public void connect() throws SolaceConnectionException, KerberosAuthException {
-        connect(0);
+        try {
+            connectAsync().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SolaceConnectionException) {
+                throw (SolaceConnectionException) cause;
+            }
+            if (cause instanceof KerberosAuthException) {
+                throw (KerberosAuthException) cause;
+            }
+            throw new SolaceConnectionException("Unexpected error during connection", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolaceConnectionException("Interrupted while waiting for connection", e);
+        }
+    }
+
+    // Returns immediately; attempts and backoff run on this client's reconnect scheduler
+    public CompletableFuture<Void> connectAsync() {
+        while (true) {
+            CompletableFuture<Void> inProgress = pendingConnect.get();
+            if (inProgress != null) {
+                return inProgress;
+            }
+
+            CompletableFuture<Void> attempt = new CompletableFuture<>();
+            if (!pendingConnect.compareAndSet(null, attempt)) {
+                continue;
+            }
+
+            // Only DISCONNECTED and FAILED may move to CONNECTING
+            if (!transitionTo(ConnectionState.CONNECTING)) {
+                pendingConnect.compareAndSet(attempt, null);
+                logger.warn("Connection already in progress or connected. Current state: {}", getConnectionState());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            connectStartNanos = System.nanoTime();
+            scheduleAttempt(attempt, 0, 0, 0);
+            return attempt;
+        }
+    }
+
+    private void scheduleAttempt(CompletableFuture<Void> attempt, long delayMs, int authFailures, int otherFailures) {
+        try {
+            reconnectScheduler.schedule(
+                () -> runAttempt(attempt, authFailures, otherFailures), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            transitionTo(ConnectionState.FAILED);
+            completeAttempt(attempt, new SolaceConnectionException("SolaceClient " + name + " is shut down", e));
+        }
     }
 
-    private void connect(int retryCount) throws SolaceConnectionException, KerberosAuthException {
-        if (!connectionState.compareAndSet(ConnectionState.DISCONNECTED, ConnectionState.CONNECTING) && 
-            !connectionState.compareAndSet(ConnectionState.FAILED, ConnectionState.CONNECTING)) {
-            logger.warn("Connection already in progress or connected. Current state: {}", connectionState.get());
+    private void runAttempt(CompletableFuture<Void> attempt, int authFailures, int otherFailures) {
+        boolean retry = authFailures + otherFailures > 0;
+        if (retry && !transition(ConnectionState.FAILED, ConnectionState.CONNECTING)) {
+            // disconnect() ran while we were backing off
+            completeAttempt(attempt, new SolaceConnectionException(
+                "Connection attempt cancelled, state is " + getConnectionState()));
             return;
         }
 
-        connectionAttempts.incrementAndGet();
-        logger.info("Attempting to connect to Solace (attempt {})", retryCount + 1);
+        connectionAttempts.increment();
+        logger.info("Attempting to connect {} to Solace (attempt {})", name, authFailures + otherFailures + 1);
 
+        long handshakeStart = System.nanoTime();
+        long generation = authManager.getCredentialGeneration();
+        Subject subject = authManager.getSubject();
         try {
-            Subject.doAs(authManager.getSubject(), (java.security.PrivilegedAction<Void>) () -> {
+            Subject.doAs(subject, (java.security.PrivilegedAction<Void>) () -> {
                 try {
-                    createAndConnectSession();
-                    connectionState.set(ConnectionState.CONNECTED);
-                    logger.info("Successfully connected to Solace");
+                    createAndConnectSession(subject);
                 } catch (JCSMPException e) {
                     throw new RuntimeException(e);
                 }
                 return null;
             });
+            recordHandshake(handshakeStart, "success");
         } catch (RuntimeException e) {
-            connectionState.set(ConnectionState.FAILED);
+            recordHandshake(handshakeStart, "failure");
+            transitionTo(ConnectionState.FAILED);
             
             if (e.getCause() instanceof JCSMPException) {
-                handleConnectionError((JCSMPException) e.getCause(), retryCount);
+                handleConnectionError(attempt, generation, (JCSMPException) e.getCause(), authFailures, otherFailures);
             } else {
-                throw new SolaceConnectionException("Unexpected error during connection", e);
+                completeAttempt(attempt, new SolaceConnectionException("Unexpected error during connection", e));
             }
+            return;
+        }
+
+        if (!transition(ConnectionState.CONNECTING, ConnectionState.CONNECTED)) {
+            // disconnect() or a session failure got in during the handshake; the new session is not ours to keep
+            ConnectionState state = getConnectionState();
+            if (state == ConnectionState.FAILED) {
+                // The new session went down before CONNECTED was published; its DOWN_ERROR joined this
+                // attempt instead of starting one, so this attempt has to go on
+                handleConnectionError(attempt, generation, new JCSMPException("Session lost during connect"),
+                    authFailures, otherFailures);
+                return;
+            }
+            if (state == ConnectionState.DISCONNECTED) {
+                closeSession();
+            }
+            completeAttempt(attempt, new SolaceConnectionException(
+                "Connection attempt superseded, state is " + state));
+            return;
+        }
+        logger.info("Successfully connected {} to Solace", name);
+        completeAttempt(attempt, null);
+        // A DOWN_ERROR right after CONNECTED found this attempt still pending and joined it
+        if (getConnectionState() == ConnectionState.FAILED) {
+            connectAsync();
         }
     }
 
-    private void createAndConnectSession() throws JCSMPException {
-        JCSMPProperties properties = new JCSMPProperties();
-        properties.setProperty(JCSMPProperties.HOST, solaceConfig.getHost());
-        properties.setProperty(JCSMPProperties.VPN_NAME, solaceConfig.getVpnName());
-        properties.setProperty(JCSMPProperties.AUTHENTICATION_SCHEME, 
-            JCSMPProperties.AUTHENTICATION_SCHEME_GSS_KRB);
-        
-        // Set connection timeout
-        properties.setProperty(JCSMPProperties.CONNECT_TIMEOUT_IN_MILLIS, 
-            solaceConfig.getConnectionTimeoutMs());
+    private void recordHandshake(long startNanos, String outcome) {
+        metrics.timer("solace.connect.handshake", "client", name, "outcome", outcome)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void completeAttempt(CompletableFuture<Void> attempt, Exception failure) {
+        // Spans every attempt and backoff, so it shows time spent in the reconnect loop
+        metrics.timer("solace.connect", "client", name, "outcome", failure == null ? "success" : "failure")
+            .record(System.nanoTime() - connectStartNanos, TimeUnit.NANOSECONDS);
+        pendingConnect.compareAndSet(attempt, null);
+        if (failure == null) {
+            attempt.complete(null);
+        } else {
+            attempt.completeExceptionally(failure);
+        }
+    }
+
+    // Everything that does not need a TGT: factory init, session properties, DNS and TLS
+    public void prepare() {
+        JCSMPFactory.onlyInstance();
+        Map<String, JCSMPProperties> prepared = new HashMap<>();
+        boolean tls = false;
+        for (String url : hostTracker.getEndpoints()) {
+            prepared.put(url, buildSessionProperties(url));
+            tls |= url.startsWith("tcps");
+
+            String host = hostNameOf(url);
+            try {
+                InetAddress.getAllByName(host);
+            } catch (UnknownHostException e) {
+                logger.warn("Could not resolve Solace broker host {}: {}", host, e.getMessage());
+            }
+        }
+        preparedProperties = prepared;
+
+        if (tls) {
+            try {
+                SSLContext.getDefault().createSSLEngine();
+            } catch (NoSuchAlgorithmException e) {
+                logger.warn("TLS warm-up failed: {}", e.getMessage());
+            }
+        }
+        logger.debug("Solace client {} prepared for {}", name, hostTracker.getEndpoints());
+    }
+
+    static String hostNameOf(String url) {
+        String host = url;
+        int scheme = host.indexOf("://");
+        if (scheme >= 0) {
+            host = host.substring(scheme + 3);
+        }
+        int port = host.lastIndexOf(':');
+        return port >= 0 ? host.substring(0, port) : host;
+    }
+
+    private void createAndConnectSession(Subject subject) throws JCSMPException {
+        SolaceConnectEvent event = new SolaceConnectEvent();
+        event.begin();
+        String outcome = "failure";
+        String host = null;
+        try {
+            host = openSession(subject);
+            outcome = "success";
+        } catch (JCSMPException | RuntimeException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.client = name;
+                event.host = host != null ? host : String.join(",", hostTracker.getEndpoints());
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    private String openSession(Subject subject) throws JCSMPException {
+        JCSMPSession previous = session;
+        if (previous != null && !previous.isClosed()) {
+            previous.closeSession();
+        }
+        HostSession connected = connectFastestHost(subject);
+        session = connected.session;
+        sessionHost = connected.host;
+        // A DOWN_ERROR between connect() returning and the assignment above was filtered out as not this
+        // client's; one after it fails the attempt through the listener
+        if (session.isClosed()) {
+            throw new JCSMPException("Session to " + connected.host + " went down while connecting");
+        }
+
+        // One producer per session; guaranteed acks and async errors arrive on its handler
+        XMLMessageProducer producer = session.getMessageProducer(guaranteedPublisher);
+        publisher.attach(producer);
+        guaranteedPublisher.attach(producer);
+        publisher.start();
+        guaranteedPublisher.start();
+        session.getMessageConsumer(new SessionRouter(session)).start();
+        reapplySubscriptions(session);
+        requestor.retire(requestor.attach(producer, requestor.openChannel(session)),
+            "Solace session " + name + " was replaced");
+        // Queue flows belong to the session they were opened on
+        for (SolaceConsumer consumer : consumers) {
+            consumer.reopenFlows();
+        }
+        return connected.host;
+    }
+
+    // Connects to the fastest healthy host. If its handshake has not finished within that host's own
+    // hedge percentile, the next host gets one parallel attempt. Any failure launches the next untried host
+    // at once, hedged or not. The first session to connect wins and every other one is closed, aborting
+    // its handshake.
+    private HostSession connectFastestHost(Subject subject) throws JCSMPException {
+        List<String> ranked = hostTracker.ranked();
+        ConnectRace race = new ConnectRace(ranked.size());
+        if (ranked.size() == 1) {
+            return connectTo(race, ranked, 0, false);
+        }
 
-        session = JCSMPFactory.onlyInstance().createSession(properties);
+        CompletionService<HostSession> attempts = new ExecutorCompletionService<>(connectExecutor);
+        int launched = 0;
+        int pending = 0;
+        boolean hedged = false;
+        boolean failedOver = false;
+        long hedgeAt = 0;
+        JCSMPException failure = null;
+        try {
+            while (true) {
+                boolean overdue = pending > 0 && !hedged && System.nanoTime() - hedgeAt >= 0;
+                if (launched < ranked.size() && (pending == 0 || failedOver || overdue)) {
+                    if (pending > 0 && !failedOver) {
+                        hedged = true;
+                        hedgedConnects.increment();
+                        hostTracker.recordOverdue(ranked.get(launched - 1));
+                        logger.info("Handshake of {} with {} is slow, also trying {}",
+                            name, ranked.get(launched - 1), ranked.get(launched));
+                    }
+                    String host = ranked.get(launched);
+                    int index = launched++;
+                    // GSS takes its credentials from the calling thread's Subject
+                    attempts.submit(() -> Subject.doAs(subject,
+                        (PrivilegedExceptionAction<HostSession>) () -> connectTo(race, ranked, index, false)));
+                    pending++;
+                    hedgeAt = System.nanoTime() + hostTracker.hedgeDelayNanos(host);
+                } else if (pending == 0) {
+                    break;
+                }
+                failedOver = false;
+
+                Future<HostSession> done = hedged || launched == ranked.size()
+                    ? attempts.take()
+                    : attempts.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    continue;
+                }
+                pending--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    JCSMPException cause = connectFailure(e.getCause());
+                    // An authentication failure needs the Kerberos refresh, whatever the other hosts said
+                    if (failure == null || !isAuthenticationError(failure)) {
+                        failure = cause;
+                    }
+                    failedOver = true;
+                    logger.warn("Connect of {} failed: {}", name, cause.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            race.abandon();
+            throw new JCSMPException("Interrupted while connecting " + name, e);
+        }
+        throw failure;
+    }
+
+    private HostSession connectTo(ConnectRace race, List<String> ranked, int index, boolean standby)
+            throws JCSMPException {
+        String host = ranked.get(index);
+        JCSMPSession candidate = newSession(host, standby);
+        if (!race.enter(index, candidate)) {
+            candidate.closeSession();
+            throw new JCSMPException("Connect to " + host + " abandoned");
+        }
+
+        long start = System.nanoTime();
+        try {
+            candidate.connect();
+        } catch (JCSMPException | RuntimeException e) {
+            candidate.closeSession();
+            // Aborted because another host won first says nothing about this one; a first attempt that
+            // was hedged away from is already ranked down as overdue
+            if (!race.isDecided()) {
+                hostTracker.recordFailure(host);
+            }
+            throw e;
+        }
+        hostTracker.recordSuccess(host, System.nanoTime() - start);
+
+        if (!race.win(candidate)) {
+            candidate.closeSession();
+            throw new JCSMPException("Connect to " + host + " lost to a faster host");
+        }
+        return new HostSession(host, candidate);
+    }
+
+    private static JCSMPException connectFailure(Throwable cause) {
+        if (cause instanceof PrivilegedActionException) {
+            cause = ((PrivilegedActionException) cause).getException();
+        }
+        return cause instanceof JCSMPException
+            ? (JCSMPException) cause
+            : new JCSMPException("Unexpected error during connection: " + cause, cause);
+    }
+
+    private JCSMPSession newSession(String host, boolean standby) throws JCSMPException {
+        Map<String, JCSMPProperties> prepared = preparedProperties;
+        JCSMPProperties properties = prepared != null && prepared.containsKey(host)
+            ? (JCSMPProperties) prepared.get(host).clone()
+            : buildSessionProperties(host);
+        // A broker evicts the older of two sessions with one name, so a reconnect, a hedged attempt
+        // and a standby must never reuse one; standbys are also marked as such for broker-side views
+        properties.setProperty(JCSMPProperties.CLIENT_NAME,
+            clientNamePrefix + (standby ? "/standby/" : "/") + sessionSequence.incrementAndGet());
+        JCSMPSession created = sessionFactory.createSession(properties);
         
-        // Add session event listener for connection monitoring
-        session.getSessionEventListeners().add(new SessionEventAdapter() {
+        // Runs on the JCSMP I/O thread: a state CAS and queue offers only, everything else
+        // happens on the event dispatcher
+        created.getSessionEventListeners().add(new SessionEventAdapter() {
             @Override
             public void handleEvent(SessionEvent event) {
-                logger.info("Received Solace session event: {}", event);
-                
+                // Hedged losers and replaced sessions no longer speak for this client; a standby only about itself
+                if (created != session) {
+                    if (event.getEvent() == SessionEventType.DOWN_ERROR) {
+                        onStandbyLost(created, host, event.getInfo());
+                    }
+                    return;
+                }
+                events.execute(() -> recordSessionEvent(event));
                 switch (event.getEvent()) {
                     case DOWN_ERROR:
-                        connectionState.set(ConnectionState.FAILED);
-                        logger.error("Solace connection lost: {}", event.getInfo());
+                        if (promoteStandby(created, host, event.getInfo())) {
+                            break;
+                        }
+                        // Refused after disconnect(), since DISCONNECTED cannot move to FAILED
+                        if (transitionTo(ConnectionState.FAILED)) {
+                            events.execute(() -> onConnectionLost(host, event.getInfo()));
+                        }
                         break;
                     case RECONNECTING:
-                        connectionState.set(ConnectionState.RECONNECTING);
-                        logger.info("Solace reconnecting...");
+                        // The standby is already connected; JCSMP's reconnect to the same host is not
+                        if (!promoteStandby(created, host, event.getInfo())) {
+                            transitionTo(ConnectionState.RECONNECTING);
+                        }
                         break;
                     case RECONNECTED:
-                        connectionState.set(ConnectionState.CONNECTED);
-                        logger.info("Solace reconnected successfully");
+                        // Same session and producer, so JCSMP resends its unacknowledged guaranteed messages
+                        // itself; the publisher only resends what it refused while down
+                        transitionTo(ConnectionState.CONNECTED);
                         break;
                 }
             }
         });
-        
-        session.connect();
+        return created;
     }
 
-    private void handleConnectionError(JCSMPException e, int retryCount) 
-            throws SolaceConnectionException, KerberosAuthException {
+    // Runs on the failed session's I/O thread. Everything the send and receive paths read is switched to
+    // the standby, so the client never leaves CONNECTED; cleanup happens on the event dispatcher.
+    private boolean promoteStandby(JCSMPSession failed, String failedHost, String info) {
+        Standby next = standby.get();
+        if (next == null || next.session.isClosed() || getConnectionState() != ConnectionState.CONNECTED) {
+            return false;
+        }
+        // subscribe() reads the standby before the subscribed session, so once it can no longer see the
+        // standby it sees the standby as the subscribed session
+        subscribedSession = next.session;
+        if (!standby.compareAndSet(next, null)) {
+            // Lost to its own DOWN_ERROR or a disconnect; the reconnect re-subscribes a new session
+            return false;
+        }
+        publisher.attach(next.producer);
+        guaranteedPublisher.attach(next.producer);
+        SolaceRequestor.ReplyChannel retired = requestor.attach(next.producer, next.replies);
+        sessionHost = next.host;
+        session = next.session;
+        events.execute(() -> onStandbyPromoted(failed, failedHost, next, info, retired));
+        return true;
+    }
+
+    private void onStandbyPromoted(JCSMPSession failed, String failedHost, Standby promoted, String info,
+                                   SolaceRequestor.ReplyChannel retired) {
+        standbyPromotions.increment();
+        logger.warn("Solace connection {} to {} lost ({}), promoted standby session on {}",
+            name, failedHost, info, promoted.host);
+        failed.closeSession();
+        // Their replies would come back to the failed session
+        requestor.retire(retired, "Solace session " + name + " to " + failedHost + " was lost");
+        if (getConnectionState() == ConnectionState.DISCONNECTED && session == promoted.session) {
+            // disconnect() closed the failed session just before the promotion replaced it
+            publisher.detach();
+            guaranteedPublisher.detach();
+            closeSession();
+            return;
+        }
+        for (SolaceConsumer consumer : consumers) {
+            consumer.reopenFlows();
+        }
+        ensureStandby();
+    }
+
+    private void onStandbyLost(JCSMPSession lost, String host, String info) {
+        Standby current = standby.get();
+        if (current != null && current.session == lost && standby.compareAndSet(current, null)) {
+            events.execute(() -> {
+                logger.warn("Standby session of {} on {} lost: {}", name, host, info);
+                lost.closeSession();
+                ensureStandby();
+            });
+        }
+    }
+
+    // At most one build runs, and only while CONNECTED without a standby
+    private void ensureStandby() {
+        if (!solaceConfig.isStandbyEnabled() || hostTracker.size() < 2
+                || getConnectionState() != ConnectionState.CONNECTED
+                || standby.get() != null || !standbyBuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            connectExecutor.execute(this::buildStandby);
+        } catch (RejectedExecutionException e) {
+            standbyBuilding.set(false);
+        }
+    }
+
+    private void buildStandby() {
+        String host = standbyHost();
+        if (host == null) {
+            standbyBuilding.set(false);
+            return;
+        }
+        long retryDelayMs = -1;
+        try {
+            Subject subject = authManager.getSubject();
+            Standby built = Subject.doAs(subject, (PrivilegedExceptionAction<Standby>) () -> openStandby(host));
+            if (built != null) {
+                standbyFailures = 0;
+                logger.info("Standby session of {} ready on {}", name, host);
+            }
+        } catch (PrivilegedActionException | RuntimeException e) {
+            retryDelayMs = connectRetryPolicy.delayMs(++standbyFailures);
+            logger.warn("Standby session of {} on {} failed: {}. Retrying in {}ms",
+                name, host, connectFailure(e).getMessage(), retryDelayMs);
+        } finally {
+            standbyBuilding.set(false);
+        }
+
+        if (retryDelayMs < 0) {
+            // The standby may already have been promoted while this build was finishing
+            ensureStandby();
+            return;
+        }
+        try {
+            reconnectScheduler.schedule(this::ensureStandby, retryDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Standby retry of {} not scheduled, client is shut down", name);
+        }
+    }
+
+    // Never the current session's host, so one broker failure cannot take both; null when there is no other
+    private String standbyHost() {
+        String current = sessionHost;
+        for (String host : hostTracker.ranked()) {
+            if (!host.equals(current)) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    private Standby openStandby(String host) throws JCSMPException {
+        JCSMPSession created = connectTo(new ConnectRace(1), Collections.singletonList(host), 0, true).session;
+        try {
+            created.getMessageConsumer(new SessionRouter(created)).start();
+            Standby built = new Standby(host, created, created.getMessageProducer(guaranteedPublisher),
+                requestor.openChannel(created));
+            synchronized (subscriptionCounts) {
+                if (!subscriptionCounts.isEmpty()) {
+                    addBrokerSubscriptions(created, subscriptionCounts.keySet());
+                }
+                // Under the lock, so disconnect() either sees this standby or this sees DISCONNECTED. The
+                // session may have moved to this host while the standby was connecting.
+                if (getConnectionState() == ConnectionState.CONNECTED && !host.equals(sessionHost)
+                        && standby.compareAndSet(null, built)) {
+                    return built;
+                }
+            }
+        } catch (JCSMPException | RuntimeException e) {
+            created.closeSession();
+            throw e;
+        }
+        created.closeSession();
+        return null;
+    }
+
+    private void discardStandby(Standby discarded) {
+        if (standby.compareAndSet(discarded, null)) {
+            discarded.session.closeSession();
+            events.execute(this::ensureStandby);
+        }
+    }
+
+    // A new session starts with no subscriptions; JCSMP's own reconnects keep them via REAPPLY_SUBSCRIPTIONS
+    private void reapplySubscriptions(JCSMPSession target) throws JCSMPException {
+        synchronized (subscriptionCounts) {
+            if (!subscriptionCounts.isEmpty()) {
+                addBrokerSubscriptions(target, subscriptionCounts.keySet());
+                logger.info("Re-applied {} subscriptions on {}", subscriptionCounts.size(), name);
+            }
+            subscribedSession = target;
+        }
+    }
+
+    // Routes messages on these topics to the listener and subscribes the session to any topic not
+    // already subscribed. While disconnected the subscriptions are applied with the next session.
+    public void subscribe(Collection<String> topics, XMLMessageListener listener) throws SolaceConnectionException {
+        synchronized (subscriptionCounts) {
+            List<String> added = new ArrayList<>();
+            for (String topic : topics) {
+                if (subscriptionCounts.merge(topic, 1, Integer::sum) == 1) {
+                    added.add(topic);
+                }
+            }
+            directRouter.addRoutes(topics, listener);
+
+            // In this order; see promoteStandby
+            Standby warm = standby.get();
+            JCSMPSession target = subscribedSession;
+            if (added.isEmpty()) {
+                return;
+            }
+            if (warm != null && warm.session != target) {
+                try {
+                    addBrokerSubscriptions(warm.session, added);
+                } catch (JCSMPException e) {
+                    logger.warn("Standby session of {} failed to subscribe, replacing it: {}", name, e.getMessage());
+                    discardStandby(warm);
+                    warm = null;
+                }
+            }
+            if (target == null || target.isClosed()) {
+                return;
+            }
+            try {
+                addBrokerSubscriptions(target, added);
+            } catch (JCSMPException e) {
+                releaseSubscriptions(directRouter.removeRoutes(topics, listener));
+                removeBrokerSubscriptions(target, added);
+                if (warm != null && warm.session != target && !warm.session.isClosed()) {
+                    removeBrokerSubscriptions(warm.session, added);
+                }
+                throw new SolaceConnectionException("Failed to subscribe " + name + " to " + added.size() + " topics", e);
+            }
+        }
+    }
+
+    public void unsubscribe(Collection<String> topics, XMLMessageListener listener) {
+        synchronized (subscriptionCounts) {
+            // Only topics this listener was really routed on hold a count it may give back
+            List<String> removed = releaseSubscriptions(directRouter.removeRoutes(topics, listener));
+            Standby warm = standby.get();
+            JCSMPSession target = subscribedSession;
+            if (removed.isEmpty()) {
+                return;
+            }
+            if (warm != null && warm.session != target && !warm.session.isClosed()) {
+                removeBrokerSubscriptions(warm.session, removed);
+            }
+            if (target != null && !target.isClosed()) {
+                removeBrokerSubscriptions(target, removed);
+            }
+        }
+    }
+
+    private List<String> releaseSubscriptions(Collection<String> topics) {
+        List<String> released = new ArrayList<>();
+        for (String topic : topics) {
+            Integer count = subscriptionCounts.get(topic);
+            if (count == null) {
+                continue;
+            }
+            if (count == 1) {
+                subscriptionCounts.remove(topic);
+                released.add(topic);
+            } else {
+                subscriptionCounts.put(topic, count - 1);
+            }
+        }
+        return released;
+    }
+
+    // The broker confirms subscription changes in order, so only the last call of a batch waits
+    private static void addBrokerSubscriptions(JCSMPSession target, Collection<String> topics) throws JCSMPException {
+        JCSMPFactory factory = JCSMPFactory.onlyInstance();
+        int remaining = topics.size();
+        for (String topic : topics) {
+            target.addSubscription(factory.createTopic(topic), --remaining == 0);
+        }
+    }
+
+    private void removeBrokerSubscriptions(JCSMPSession target, Collection<String> topics) {
+        JCSMPFactory factory = JCSMPFactory.onlyInstance();
+        int remaining = topics.size();
+        for (String topic : topics) {
+            try {
+                target.removeSubscription(factory.createTopic(topic), --remaining == 0);
+            } catch (JCSMPException e) {
+                logger.warn("Failed to remove subscription {} on {}: {}", topic, name, e.getMessage());
+            }
+        }
+    }
+
+    private void recordSessionEvent(SessionEvent event) {
+        logger.info("Received Solace session event on {}: {}", name, event);
+        metrics.counter("solace.session.events", "client", name, "event", event.getEvent().name()).increment();
+    }
+
+    private void onConnectionLost(String host, String info) {
+        publisher.detach();
+        guaranteedPublisher.detach();
+        logger.error("Solace connection {} to {} lost: {}", name, host, info);
+        // JCSMP has given up on its own reconnects
+        connectAsync();
+    }
+
+    private JCSMPProperties buildSessionProperties(String host) {
+        JCSMPProperties properties = new JCSMPProperties();
+        properties.setProperty(JCSMPProperties.HOST, host);
+        properties.setProperty(JCSMPProperties.VPN_NAME, solaceConfig.getVpnName());
+        properties.setProperty(JCSMPProperties.AUTHENTICATION_SCHEME, 
+            JCSMPProperties.AUTHENTICATION_SCHEME_GSS_KRB);
         
-        if (isAuthenticationError(e)) {
+        // Set connection timeout
+        properties.setProperty(JCSMPProperties.CONNECT_TIMEOUT_IN_MILLIS, 
+            solaceConfig.getConnectionTimeoutMs());
+        properties.setProperty(JCSMPProperties.REAPPLY_SUBSCRIPTIONS, true);
+        // JCSMP's own window tops out at 255; ours bounds what the application may have unacknowledged
+        properties.setProperty(JCSMPProperties.PUB_ACK_WINDOW_SIZE,
+            Math.min(255, solaceConfig.getGuaranteedWindowSize()));
+        return properties;
+    }
+
+    private void handleConnectionError(CompletableFuture<Void> attempt, long generation, JCSMPException e,
+                                       int authFailures, int otherFailures) {
+        boolean authError = isAuthenticationError(e);
+        metrics.counter("solace.connect.failures", "client", name, "type", authError ? "auth" : "other").increment();
+        if (authError) {
             logger.warn("Authentication error detected. Triggering Kerberos refresh...");
             
-            if (retryCount >= solaceConfig.getMaxReconnectRetries()) {
-                throw new SolaceConnectionException(
-                    "Max authentication retry attempts (" + solaceConfig.getMaxReconnectRetries() + ") exceeded", e);
+            int failures = authFailures + 1;
+            if (authRetryPolicy.isExhausted(failures)) {
+                recordRetry(true, failures, 0, true, e);
+                completeAttempt(attempt, new SolaceConnectionException(
+                    "Max authentication retry attempts (" + authRetryPolicy.getMaxRetries() + ") exceeded", e));
+                return;
             }
             
-            authManager.forceRefreshOrRelogin();
-            
-            logger.info("Retrying connection (attempt {}/{})", 
-                retryCount + 1, solaceConfig.getMaxReconnectRetries());
-            
-            try {
-                Thread.sleep(solaceConfig.getConnectionTimeoutMs());
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                throw new SolaceConnectionException("Connection retry interrupted", ie);
-            }
-            
-            connect(retryCount + 1);
+            // Joins any renewal already triggered by another session, or goes straight on if one already
+            // replaced the rejected TGT; the retry waits for the fresh TGT without parking a thread
+            long delayMs = authRetryPolicy.delayMs(failures);
+            recordRetry(true, failures, delayMs, false, e);
+            authManager.refreshAsync(generation).whenComplete((subject, refreshFailure) -> {
+                if (refreshFailure != null) {
+                    Throwable cause = refreshFailure instanceof CompletionException
+                        ? refreshFailure.getCause() : refreshFailure;
+                    completeAttempt(attempt, cause instanceof KerberosAuthException
+                        ? (KerberosAuthException) cause
+                        : new KerberosAuthException("Kerberos refresh failed", cause));
+                    return;
+                }
+                logger.info("Retrying connection in {}ms (attempt {}/{})", 
+                    delayMs, failures, authRetryPolicy.getMaxRetries());
+                scheduleAttempt(attempt, delayMs, failures, otherFailures);
+            });
         } else {
-            throw new SolaceConnectionException("Non-authentication error occurred", e);
+            int failures = otherFailures + 1;
+            if (connectRetryPolicy.isExhausted(failures)) {
+                recordRetry(false, failures, 0, true, e);
+                completeAttempt(attempt, new SolaceConnectionException("Non-authentication error occurred", e));
+                return;
+            }
+
+            long delayMs = connectRetryPolicy.delayMs(failures);
+            recordRetry(false, failures, delayMs, false, e);
+            logger.warn("Connection failed ({}). Retrying in {}ms (attempt {}/{})", 
+                e.getMessage(), delayMs, failures, connectRetryPolicy.getMaxRetries());
+            scheduleAttempt(attempt, delayMs, authFailures, failures);
+        }
+    }
+
+    private void recordRetry(boolean authError, int attempt, long delayMs, boolean exhausted, JCSMPException cause) {
+        SolaceRetryEvent event = new SolaceRetryEvent();
+        if (event.shouldCommit()) {
+            event.client = name;
+            event.authError = authError;
+            event.attempt = attempt;
+            event.delayMs = delayMs;
+            event.exhausted = exhausted;
+            event.error = cause.getMessage();
+            event.commit();
         }
     }
 
@@ -136,23 +877,165 @@ public class SolaceClient {
                 message.contains("401"));
     }
 
+    public String getName() {
+        return name;
+    }
+
+    public SolacePublisher getPublisher() {
+        return publisher;
+    }
+
+    // Queues the message for the batching sender thread; false means the publish queue is full
+    public boolean publish(String topic, byte[] payload) {
+        return publisher.publish(topic, payload);
+    }
+
+    // Copies the buffer's remaining bytes into a pooled request; see SolacePublisher for when that allocates
+    public boolean publish(String topic, ByteBuffer payload) {
+        return publisher.publish(topic, payload);
+    }
+
+    public GuaranteedPublisher getGuaranteedPublisher() {
+        return guaranteedPublisher;
+    }
+
+    // Completes once the broker has persisted the message; see GuaranteedPublisher for threading
+    public CompletableFuture<Void> publishGuaranteed(String topic, byte[] payload) {
+        return guaranteedPublisher.publish(JCSMPFactory.onlyInstance().createTopic(topic), payload);
+    }
+
+    // Callback form for high rates: no future per message. Returns the correlation id, or -1 when the window is full
+    public long publishGuaranteed(String topic, byte[] payload, GuaranteedPublisher.AckCallback callback) {
+        return guaranteedPublisher.publish(JCSMPFactory.onlyInstance().createTopic(topic), payload, callback);
+    }
+
+    public SolaceRequestor getRequestor() {
+        return requestor;
+    }
+
+    // Completes with the reply, or exceptionally on timeout, a full request window, or once the connection
+    // leaves CONNECTED; see SolaceRequestor for threading
+    public CompletableFuture<BytesXMLMessage> request(String topic, byte[] payload) {
+        return request(topic, payload, solaceConfig.getRequestTimeoutMs());
+    }
+
+    public CompletableFuture<BytesXMLMessage> request(String topic, byte[] payload, long timeoutMs) {
+        return requestor.request(JCSMPFactory.onlyInstance().createTopic(topic), payload, timeoutMs);
+    }
+
+    public SolaceConsumer createConsumer(Function<BytesXMLMessage, ?> keyExtractor,
+                                         SolaceConsumer.MessageHandler handler) {
+        SolaceConsumer consumer = new SolaceConsumer(
+            this, name + "-" + consumers.size(), solaceConfig, metrics, keyExtractor, handler);
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    JCSMPSession currentSession() {
+        return session;
+    }
+
+    // The broker URL the current session is connected to
+    public String getConnectedHost() {
+        return session != null ? sessionHost : null;
+    }
+
+    // The broker URL the standby session is connected to, or null while none is ready
+    public String getStandbyHost() {
+        Standby current = standby.get();
+        return current != null ? current.host : null;
+    }
+
+    DirectMessageRouter getDirectRouter() {
+        return directRouter;
+    }
+
     public ConnectionState getConnectionState() {
-        return connectionState.get();
+        return STATES[(int) (stateWord.get() & 0xFF)];
+    }
+
+    // Listeners run on this client's event thread and see every transition exactly once, in order
+    public void addStateListener(ConnectionStateListener listener) {
+        events.addListener(listener);
+    }
+
+    // Moves to next from whatever the current state is, if ConnectionState allows it
+    private boolean transitionTo(ConnectionState next) {
+        while (true) {
+            long word = stateWord.get();
+            ConnectionState current = STATES[(int) (word & 0xFF)];
+            if (current == next || !current.canTransitionTo(next)) {
+                return false;
+            }
+            if (compareAndSetState(word, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Moves to next only from expected
+    private boolean transition(ConnectionState expected, ConnectionState next) {
+        if (!expected.canTransitionTo(next)) {
+            return false;
+        }
+        while (true) {
+            long word = stateWord.get();
+            if (STATES[(int) (word & 0xFF)] != expected) {
+                return false;
+            }
+            if (compareAndSetState(word, expected, next)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean compareAndSetState(long word, ConnectionState current, ConnectionState next) {
+        long sequence = (word >>> 8) + 1;
+        if (!stateWord.compareAndSet(word, sequence << 8 | next.ordinal())) {
+            return false;
+        }
+        events.stateChanged(sequence, current, next);
+        return true;
+    }
+
+    private void recordStateChange(ConnectionState previous, ConnectionState current) {
+        ConnectionStateEvent event = new ConnectionStateEvent();
+        if (event.shouldCommit()) {
+            event.client = name;
+            event.previous = previous.name();
+            event.current = current.name();
+            event.commit();
+        }
+        logger.debug("Solace client {} moved from {} to {}", name, previous, current);
     }
 
     public boolean isConnected() {
-        return connectionState.get() == ConnectionState.CONNECTED && 
+        return getConnectionState() == ConnectionState.CONNECTED && 
                session != null && 
                !session.isClosed();
     }
 
     public void disconnect() {
         logger.info("Disconnecting from Solace...");
-        connectionState.set(ConnectionState.DISCONNECTED);
-        
-        if (session != null) {
+        transitionTo(ConnectionState.DISCONNECTED);
+        Standby discarded;
+        synchronized (subscriptionCounts) {
+            discarded = standby.getAndSet(null);
+        }
+        if (discarded != null) {
+            discarded.session.closeSession();
+        }
+        publisher.detach();
+        guaranteedPublisher.detach();
+        requestor.retire(requestor.attach(null, null), "Solace client " + name + " disconnected");
+        closeSession();
+    }
+
+    private void closeSession() {
+        JCSMPSession current = session;
+        if (current != null) {
             try {
-                session.closeSession();
+                current.closeSession();
                 logger.info("Solace session closed successfully");
             } catch (Exception e) {
                 logger.error("Error closing Solace session", e);
@@ -162,7 +1045,108 @@ public class SolaceClient {
     }
 
     public void shutdown() {
+        for (SolaceConsumer consumer : consumers) {
+            consumer.stop();
+        }
+        reconnectScheduler.shutdownNow();
+        connectExecutor.shutdownNow();
         disconnect();
+        publisher.shutdown();
+        guaranteedPublisher.shutdown();
+        requestor.shutdown();
+        events.shutdown();
         logger.info("SolaceClient shutdown complete");
     }
+
+    private static final class HostSession {
+        final String host;
+        final JCSMPSession session;
+
+        HostSession(String host, JCSMPSession session) {
+            this.host = host;
+            this.session = session;
+        }
+    }
+
+    private static final class Standby {
+        final String host;
+        final JCSMPSession session;
+        final XMLMessageProducer producer;
+        // Null when no request had been sent yet as the standby was built
+        final SolaceRequestor.ReplyChannel replies;
+
+        Standby(String host, JCSMPSession session, XMLMessageProducer producer, SolaceRequestor.ReplyChannel replies) {
+            this.host = host;
+            this.session = session;
+            this.producer = producer;
+            this.replies = replies;
+        }
+    }
+
+    // Delivers a session's direct messages only while it is the current one: a standby is subscribed
+    // before it is promoted, and a replaced session may still be draining its socket
+    private final class SessionRouter implements XMLMessageListener {
+        private final JCSMPSession owner;
+
+        SessionRouter(JCSMPSession owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void onReceive(BytesXMLMessage message) {
+            if (owner == session && !requestor.onReply(message)) {
+                directRouter.onReceive(message);
+            }
+        }
+
+        @Override
+        public void onException(JCSMPException e) {
+            if (owner == session) {
+                directRouter.onException(e);
+            }
+        }
+    }
+
+    // One connect across hosts: exactly one candidate wins, and deciding closes every other one,
+    // including candidates that register after the decision
+    private static final class ConnectRace {
+        private final AtomicReferenceArray<JCSMPSession> candidates;
+        private final AtomicBoolean decided = new AtomicBoolean();
+
+        ConnectRace(int hosts) {
+            this.candidates = new AtomicReferenceArray<>(hosts);
+        }
+
+        boolean enter(int index, JCSMPSession candidate) {
+            candidates.set(index, candidate);
+            return !decided.get();
+        }
+
+        boolean isDecided() {
+            return decided.get();
+        }
+
+        boolean win(JCSMPSession candidate) {
+            if (!decided.compareAndSet(false, true)) {
+                return false;
+            }
+            closeAllExcept(candidate);
+            return true;
+        }
+
+        void abandon() {
+            if (decided.compareAndSet(false, true)) {
+                closeAllExcept(null);
+            }
+        }
+
+        private void closeAllExcept(JCSMPSession winner) {
+            for (int i = 0; i < candidates.length(); i++) {
+                JCSMPSession candidate = candidates.get(i);
+                if (candidate != null && candidate != winner) {
+                    candidate.closeSession();
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
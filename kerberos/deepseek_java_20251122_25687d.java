@@ -0,0 +1,143 @@
+// CredentialCacheStore.java
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.kerberos.KerberosTicket;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+// AES-GCM encrypted TGT snapshot; the key is derived from the principal's password
+public class CredentialCacheStore {
+    private static final Logger logger = LoggerFactory.getLogger(CredentialCacheStore.class);
+
+    private static final int MAGIC = 0x4B524243; // "KRBC"
+    private static final int VERSION = 1;
+    private static final int SALT_BYTES = 16;
+    private static final int IV_BYTES = 12;
+    private static final int KEY_ITERATIONS = 100_000;
+
+    private final Path path;
+    private final String principal;
+    private final char[] password;
+    private final SecureRandom random = new SecureRandom();
+
+    // Derived once per salt so repeated saves after each refresh stay cheap
+    private byte[] salt;
+    private SecretKey key;
+
+    public CredentialCacheStore(Path path, String principal, char[] password) {
+        this.path = path;
+        this.principal = principal;
+        this.password = password;
+    }
+
+    public synchronized KerberosTicket load() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring credential cache {} with unknown format", path);
+                return null;
+            }
+
+            byte[] fileSalt = new byte[SALT_BYTES];
+            byte[] iv = new byte[IV_BYTES];
+            in.readFully(fileSalt);
+            in.readFully(iv);
+            byte[] ciphertext = new byte[in.readInt()];
+            in.readFully(ciphertext);
+
+            SecretKey fileKey = deriveKey(fileSalt);
+            byte[] plaintext = cipher(Cipher.DECRYPT_MODE, fileKey, iv).doFinal(ciphertext);
+
+            // GCM authentication has already rejected anything we did not write ourselves
+            try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(plaintext))) {
+                KerberosTicket ticket = (KerberosTicket) objects.readObject();
+                this.salt = fileSalt;
+                this.key = fileKey;
+                return ticket;
+            }
+        } catch (IOException | GeneralSecurityException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("Discarding unreadable credential cache {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized void save(KerberosTicket ticket) {
+        try {
+            if (key == null) {
+                salt = new byte[SALT_BYTES];
+                random.nextBytes(salt);
+                key = deriveKey(salt);
+            }
+
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream objects = new ObjectOutputStream(serialized)) {
+                objects.writeObject(ticket);
+            }
+
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            byte[] ciphertext = cipher(Cipher.ENCRYPT_MODE, key, iv).doFinal(serialized.toByteArray());
+
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, ".krbcache", ".tmp");
+            try {
+                restrictToOwner(temp);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.write(salt);
+                    out.write(iv);
+                    out.writeInt(ciphertext.length);
+                    out.write(ciphertext);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            logger.debug("Persisted TGT valid until {} to {}", ticket.getEndTime(), path);
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("Failed to persist credential cache {}: {}", path, e.getMessage());
+        }
+    }
+
+    private SecretKey deriveKey(byte[] keySalt) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password, keySalt, KEY_ITERATIONS, 256);
+        try {
+            byte[] encoded = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return new SecretKeySpec(encoded, "AES");
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private Cipher cipher(int mode, SecretKey cipherKey, byte[] iv) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, cipherKey, new GCMParameterSpec(128, iv));
+        // Bind the snapshot to the principal so another user's file never decrypts as ours
+        cipher.updateAAD(principal.getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+
+    private static void restrictToOwner(Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            logger.debug("File system does not support POSIX permissions for {}", file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+// ConnectionEventDispatcher.java
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Runs state listeners and session event handling on one thread per client, so the JCSMP I/O thread
+// only ever does a CAS and a queue offer, which never waits. State changes carry the sequence number of their CAS and are
+// delivered strictly in that order, even when two transitioning threads offer them the other way round.
+class ConnectionEventDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionEventDispatcher.class);
+
+    private static final int CAPACITY = 1024;
+
+    private final MpscRingBuffer<Object> events = new MpscRingBuffer<>(CAPACITY);
+    // Takes events once the ring is full, and every later one until it has drained, so each producer's
+    // events stay in the order it offered them
+    private final ConcurrentLinkedQueue<Object> overflow = new ConcurrentLinkedQueue<>();
+    private final ConsumerParker parker = new ConsumerParker();
+    private final BooleanSupplier hasWork = this::hasWork;
+    private final List<ConnectionStateListener> listeners = new CopyOnWriteArrayList<>();
+    // Dispatcher thread only: changes that arrived ahead of an earlier one, indexed by sequence
+    private final StateChange[] early = new StateChange[CAPACITY];
+    private final Thread thread;
+    private long nextSequence = 1;
+    private boolean overflowing;
+    private volatile boolean running = true;
+
+    ConnectionEventDispatcher(String name) {
+        this.thread = new Thread(this::run, "solace-events-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void addListener(ConnectionStateListener listener) {
+        listeners.add(listener);
+    }
+
+    void stateChanged(long sequence, ConnectionState previous, ConnectionState current) {
+        offer(new StateChange(sequence, previous, current));
+    }
+
+    // Runs after every state change already published by the calling thread
+    void execute(Runnable task) {
+        offer(task);
+    }
+
+    // Never blocks, so it is safe from the JCSMP I/O thread and from tasks and listeners already running on
+    // the dispatcher thread, which transition the state themselves. Dropping would lose a transition, so an
+    // event that does not fit the ring goes to the unbounded overflow instead.
+    private void offer(Object event) {
+        if (!overflow.isEmpty() || !events.offer(event)) {
+            overflow.add(event);
+        }
+        // The dispatcher finds its own events on its next poll
+        if (Thread.currentThread() != thread) {
+            parker.wake();
+        }
+    }
+
+    private boolean hasWork() {
+        return !running || hasEvents();
+    }
+
+    private boolean hasEvents() {
+        return !events.isEmpty() || !overflow.isEmpty();
+    }
+
+    private void run() {
+        while (running || hasEvents()) {
+            // The ring first: anything a producer offered there went in before its first overflowed event
+            Object event = events.poll();
+            if (event == null) {
+                event = overflow.poll();
+                if (event != null && !overflowing) {
+                    overflowing = true;
+                    logger.warn("Connection event dispatcher {} fell {} events behind", thread.getName(), CAPACITY);
+                } else if (event == null) {
+                    overflowing = false;
+                    parker.park(hasWork);
+                    continue;
+                }
+            }
+
+            if (event instanceof StateChange) {
+                deliverInOrder((StateChange) event);
+            } else {
+                try {
+                    ((Runnable) event).run();
+                } catch (RuntimeException e) {
+                    logger.error("Connection event task failed", e);
+                }
+            }
+        }
+    }
+
+    private void deliverInOrder(StateChange change) {
+        if (change.sequence != nextSequence) {
+            early[(int) change.sequence & (CAPACITY - 1)] = change;
+            return;
+        }
+
+        deliver(change);
+        nextSequence++;
+        int slot;
+        while ((change = early[slot = (int) nextSequence & (CAPACITY - 1)]) != null && change.sequence == nextSequence) {
+            early[slot] = null;
+            deliver(change);
+            nextSequence++;
+        }
+    }
+
+    private void deliver(StateChange change) {
+        for (ConnectionStateListener listener : listeners) {
+            try {
+                listener.onStateChange(change.previous, change.current);
+            } catch (RuntimeException e) {
+                logger.error("Connection state listener failed", e);
+            }
+        }
+    }
+
+    // Delivers whatever is already queued, then stops the thread
+    void shutdown() {
+        running = false;
+        parker.wake();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class StateChange {
+        final long sequence;
+        final ConnectionState previous;
+        final ConnectionState current;
+
+        StateChange(long sequence, ConnectionState previous, ConnectionState current) {
+            this.sequence = sequence;
+            this.previous = previous;
+            this.current = current;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+// HarnessSupport.java
+import com.solacesystems.jcsmp.*;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.*;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.login.LoginException;
+import javax.security.auth.spi.LoginModule;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Scaffolding shared by the harness mains, which keep only their scenarios: option parsing, latency
+// percentiles, a JCSMPSession stand-in and an instant stub KDC behind a JAAS login module.
+public final class HarnessSupport {
+    static final String REALM = "HARNESS.LOCAL";
+    static final long DEFAULT_TICKET_LIFETIME_MS = TimeUnit.HOURS.toMillis(1);
+
+    // Static because JAAS instantiates login modules reflectively
+    static final StubKdc KDC = new StubKdc();
+
+    private HarnessSupport() {
+    }
+
+    // Kerberos settings every harness shares; the KDC itself is the stub behind stubJaasConfig()
+    static KerberosConfig stubKerberosConfig() {
+        KerberosConfig config = new KerberosConfig();
+        config.setKdc("localhost");
+        config.setRealm(REALM);
+        config.setRefreshBufferMs(1000);
+        return config;
+    }
+
+    static Configuration stubJaasConfig() {
+        return new Configuration() {
+            @Override
+            public AppConfigurationEntry[] getAppConfigurationEntry(String name) {
+                return new AppConfigurationEntry[]{
+                    new AppConfigurationEntry(StubKdcLoginModule.class.getName(),
+                        AppConfigurationEntry.LoginModuleControlFlag.REQUIRED, Collections.<String, Object>emptyMap())
+                };
+            }
+        };
+    }
+
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    // Producers and consumers that only need to accept calls
+    static <T> T inert(Class<T> type) {
+        return proxy(type, (proxy, method, args) -> defaultValue(method.getReturnType()));
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static KerberosTicket findTGT(Subject subject) {
+        if (subject == null) {
+            return null;
+        }
+        for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            if (ticket.getServer().getName().startsWith("krbtgt/")) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    // --name=value arguments
+    static final class Options {
+        private final Map<String, String> values = new HashMap<>();
+
+        Options(String[] args) {
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+
+        long get(String name, long defaultValue) {
+            String value = values.get(name);
+            return value != null ? Long.parseLong(value) : defaultValue;
+        }
+
+        double get(String name, double defaultValue) {
+            String value = values.get(name);
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        }
+
+        String get(String name, String defaultValue) {
+            return values.getOrDefault(name, defaultValue);
+        }
+    }
+
+    static final class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int count;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        synchronized double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+        }
+    }
+
+    // Answers the JCSMPSession calls SolaceClient makes. Harnesses override connect() to model the
+    // handshake and other() for anything further their scenario needs.
+    static class FakeSession implements InvocationHandler {
+        final List<SessionEventAdapter> listeners = new CopyOnWriteArrayList<>();
+        private final XMLMessageProducer producer = inert(XMLMessageProducer.class);
+        private final XMLMessageConsumer consumer = inert(XMLMessageConsumer.class);
+        volatile XMLMessageListener messageListener;
+        volatile boolean closed;
+
+        static FakeSession of(JCSMPSession session) {
+            return session != null ? (FakeSession) Proxy.getInvocationHandler(session) : null;
+        }
+
+        JCSMPSession newProxy() {
+            return proxy(JCSMPSession.class, this);
+        }
+
+        void connect() throws JCSMPException {
+        }
+
+        XMLMessageProducer producer() {
+            return producer;
+        }
+
+        Object other(Object proxy, Method method, Object[] args) throws Throwable {
+            return defaultValue(method.getReturnType());
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "connect":
+                    connect();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "closeSession":
+                    closed = true;
+                    return null;
+                case "getSessionEventListeners":
+                    return listeners;
+                case "getMessageProducer":
+                    return producer();
+                case "getMessageConsumer":
+                    if (args != null && args.length == 1 && args[0] instanceof XMLMessageListener) {
+                        messageListener = (XMLMessageListener) args[0];
+                    }
+                    return consumer;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeSession@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    return other(proxy, method, args);
+            }
+        }
+
+        void drop(String info) {
+            closed = true;
+            SessionEvent event = proxy(SessionEvent.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getEvent":
+                        return SessionEventType.DOWN_ERROR;
+                    case "getInfo":
+                        return info;
+                    case "toString":
+                        return "DOWN_ERROR: " + info;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+            for (SessionEventAdapter listener : listeners) {
+                listener.handleEvent(event);
+            }
+        }
+    }
+
+    static final class StubKdc {
+        final AtomicLong asRequests = new AtomicLong();
+        volatile long latencyMs;
+        volatile long extraLatencyMs;
+        volatile long spikeLatencyMs;
+        volatile long spikePercent;
+        volatile long ticketLifetimeMs = DEFAULT_TICKET_LIFETIME_MS;
+        volatile boolean unavailable;
+
+        void reset(long latencyMs) {
+            this.latencyMs = latencyMs;
+            extraLatencyMs = 0;
+            spikeLatencyMs = 0;
+            spikePercent = 0;
+            ticketLifetimeMs = DEFAULT_TICKET_LIFETIME_MS;
+            unavailable = false;
+        }
+
+        KerberosTicket asExchange(String username) throws LoginException {
+            asRequests.incrementAndGet();
+            long delay = latencyMs + extraLatencyMs;
+            if (spikePercent > 0 && ThreadLocalRandom.current().nextInt(100) < spikePercent) {
+                delay += spikeLatencyMs;
+            }
+            sleep(delay);
+            if (unavailable) {
+                throw new LoginException("Harness KDC unavailable");
+            }
+
+            // Not renewable, so every refresh in the manager is a full AS exchange against this KDC
+            Date now = new Date();
+            return new KerberosTicket(new byte[]{0},
+                new KerberosPrincipal(username + "@" + REALM),
+                new KerberosPrincipal("krbtgt/" + REALM + "@" + REALM),
+                new byte[16], 17, new boolean[32],
+                now, now, new Date(now.getTime() + ticketLifetimeMs), null, null);
+        }
+    }
+
+    // Instantiated by JAAS through stubJaasConfig()
+    public static final class StubKdcLoginModule implements LoginModule {
+        private Subject subject;
+        private CallbackHandler callbackHandler;
+        private KerberosTicket ticket;
+
+        @Override
+        public void initialize(Subject subject, CallbackHandler callbackHandler,
+                               Map<String, ?> sharedState, Map<String, ?> options) {
+            this.subject = subject;
+            this.callbackHandler = callbackHandler;
+        }
+
+        @Override
+        public boolean login() throws LoginException {
+            NameCallback name = new NameCallback("principal");
+            PasswordCallback password = new PasswordCallback("password", false);
+            try {
+                callbackHandler.handle(new Callback[]{name, password});
+            } catch (IOException | UnsupportedCallbackException e) {
+                throw new LoginException("Harness login callbacks failed: " + e.getMessage());
+            }
+            ticket = KDC.asExchange(name.getName());
+            return true;
+        }
+
+        @Override
+        public boolean commit() {
+            subject.getPrincipals().add(ticket.getClient());
+            subject.getPrivateCredentials().add(ticket);
+            return true;
+        }
+
+        @Override
+        public boolean abort() {
+            ticket = null;
+            return true;
+        }
+
+        @Override
+        public boolean logout() throws LoginException {
+            if (ticket != null) {
+                subject.getPrincipals().remove(ticket.getClient());
+                subject.getPrivateCredentials().remove(ticket);
+                try {
+                    ticket.destroy();
+                } catch (javax.security.auth.DestroyFailedException e) {
+                    throw new LoginException("Failed to destroy harness ticket: " + e.getMessage());
+                }
+                ticket = null;
+            }
+            return true;
+        }
+    }
+}
\ No newline at end of file
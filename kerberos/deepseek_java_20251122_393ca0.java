@@ -0,0 +1,285 @@
+// RequestReplyHarness.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Pipelines requests through SolaceClient to an in-process responder from a few caller threads, with tens
+// of thousands in flight. Reports latency and throughput, timeouts when replies are lost, and how soon
+// every in-flight request fails once the session goes down.
+// Usage: java RequestReplyHarness [--callers=4] [--in-flight=50000] [--requests=1000000] [--reply-ms=5]
+//                                 [--lossy-percent=1] [--timeout-ms=2000]
+public class RequestReplyHarness {
+    private static final String TOPIC = "harness/rpc";
+    private static final byte[] PAYLOAD = new byte[64];
+
+    private final HarnessSupport.Options options;
+    private KerberosAuthManager authManager;
+    private Responder responder;
+
+    RequestReplyHarness(HarnessSupport.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        RequestReplyHarness harness = new RequestReplyHarness(new HarnessSupport.Options(args));
+        try {
+            harness.setUp();
+            harness.run();
+        } finally {
+            harness.tearDown();
+        }
+    }
+
+    void setUp() throws Exception {
+        responder = new Responder(options.get("reply-ms", 5));
+
+        // The Kerberos side is the instant stub KDC
+        authManager = new KerberosAuthManager(HarnessSupport.stubKerberosConfig(),
+            new ClientMetrics(new SimpleMeterRegistry()), "harness", "secret".toCharArray(),
+            HarnessSupport.stubJaasConfig());
+        authManager.start();
+    }
+
+    void run() throws Exception {
+        int inFlight = (int) options.get("in-flight", 50000);
+        SolaceConfig config = new SolaceConfig();
+        config.setHost("tcp://responder.harness.local:55555");
+        config.setRequestMaxInFlight(inFlight);
+        config.setReconnectBaseDelayMs(10);
+        config.setReconnectMaxDelayMs(100);
+        SolaceClient client = new SolaceClient(authManager, config, new ClientMetrics(new SimpleMeterRegistry()),
+            "rpc", properties -> new ResponderSession(responder).newProxy());
+        try {
+            client.connect();
+            awaitConnected(client);
+
+            System.out.printf("%-8s %9s %10s %8s %8s %8s %9s %7s %9s %8s%n", "phase", "requests", "perSec",
+                "p50ms", "p99ms", "maxms", "timeouts", "failed", "peakIn", "threads");
+            pipeline("steady", client, 0, config.getRequestTimeoutMs());
+            pipeline("lossy", client, (int) options.get("lossy-percent", 1), options.get("timeout-ms", 2000));
+            failover(client, inFlight);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private void pipeline(String phase, SolaceClient client, int lossPercent, long timeoutMs) throws Exception {
+        int callers = (int) options.get("callers", 4);
+        int inFlight = (int) options.get("in-flight", 50000);
+        long perCaller = options.get("requests", 1_000_000) / callers;
+        responder.lossPercent = lossPercent;
+
+        Semaphore outstanding = new Semaphore(inFlight);
+        HarnessSupport.LatencyRecorder latencies = new HarnessSupport.LatencyRecorder();
+        AtomicLong timeouts = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < callers; c++) {
+            Thread caller = new Thread(() -> {
+                for (long i = 0; i < perCaller; i++) {
+                    outstanding.acquireUninterruptibly();
+                    long sent = System.nanoTime();
+                    client.request(TOPIC, PAYLOAD, timeoutMs).whenComplete((reply, failure) -> {
+                        if (failure == null) {
+                            latencies.record(System.nanoTime() - sent);
+                        } else if (failure.getCause() instanceof TimeoutException) {
+                            timeouts.incrementAndGet();
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                        outstanding.release();
+                    });
+                }
+            }, "harness-caller-" + c);
+            caller.start();
+            threads.add(caller);
+        }
+
+        int peak = 0;
+        int activeThreads = 0;
+        for (Thread caller : threads) {
+            while (caller.isAlive()) {
+                peak = Math.max(peak, client.getRequestor().getInFlightCount());
+                activeThreads = Math.max(activeThreads, Thread.activeCount());
+                caller.join(1);
+            }
+        }
+        outstanding.acquireUninterruptibly(inFlight);
+        outstanding.release(inFlight);
+        long elapsed = System.nanoTime() - start;
+
+        long requests = perCaller * callers;
+        System.out.printf("%-8s %9d %10.0f %8.2f %8.2f %8.2f %9d %7d %9d %8d%n", phase, requests,
+            requests / (elapsed / 1e9), latencies.percentileMillis(50), latencies.percentileMillis(99),
+            latencies.percentileMillis(100), timeouts.get(), failures.get(), peak, activeThreads);
+    }
+
+    // Fills the window with requests the responder holds, then drops the session under them
+    private void failover(SolaceClient client, int inFlight) throws Exception {
+        responder.lossPercent = 0;
+        responder.holding = true;
+        CountDownLatch completed = new CountDownLatch(inFlight);
+        AtomicLong failed = new AtomicLong();
+        for (int i = 0; i < inFlight; i++) {
+            client.request(TOPIC, PAYLOAD, TimeUnit.MINUTES.toMillis(1)).whenComplete((reply, failure) -> {
+                if (failure != null && failure.getCause() instanceof SolaceConnectionException) {
+                    failed.incrementAndGet();
+                }
+                completed.countDown();
+            });
+        }
+
+        long start = System.nanoTime();
+        HarnessSupport.FakeSession session = HarnessSupport.FakeSession.of(client.currentSession());
+        session.drop("Harness injected DOWN_ERROR");
+        if (!completed.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(completed.getCount() + " requests still in flight after the session dropped");
+        }
+        System.out.printf("failover: %d of %d in-flight requests failed %.2fms after DOWN_ERROR%n",
+            failed.get(), inFlight, (System.nanoTime() - start) / 1e6);
+        responder.holding = false;
+        awaitConnected(client);
+    }
+
+    private static void awaitConnected(SolaceClient client) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (!client.isConnected()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException(client.getName() + " did not connect, state " + client.getConnectionState());
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    void tearDown() {
+        if (responder != null) {
+            responder.shutdown();
+        }
+        if (authManager != null) {
+            authManager.shutdown();
+        }
+    }
+
+    // Answers every request after a fixed delay on one thread, as a session's I/O thread would deliver them.
+    // The delay is the same for all, so replies fall due in arrival order and a FIFO is enough.
+    private static final class Responder implements Runnable {
+        final java.util.Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+        final Thread thread = new Thread(this, "harness-responder");
+        final long replyNanos;
+        volatile int lossPercent;
+        volatile boolean holding;
+        volatile boolean running = true;
+
+        Responder(long replyMs) {
+            this.replyNanos = TimeUnit.MILLISECONDS.toNanos(replyMs);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Reply next = replies.peek();
+                long wait = next != null ? next.dueNanos - System.nanoTime() : TimeUnit.MILLISECONDS.toNanos(1);
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+                replies.poll();
+                next.session.deliver(next.message);
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        void onRequest(ResponderSession session, XMLMessage request) {
+            if (holding || (lossPercent > 0 && ThreadLocalRandom.current().nextInt(100) < lossPercent)) {
+                return;
+            }
+            Destination replyTo = request.getReplyTo();
+            String correlationId = request.getCorrelationId();
+            BytesXMLMessage reply = HarnessSupport.proxy(BytesXMLMessage.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getDestination":
+                        return replyTo;
+                    case "getCorrelationId":
+                        return correlationId;
+                    case "isReplyMessage":
+                        return true;
+                    case "getDeliveryMode":
+                        return DeliveryMode.DIRECT;
+                    default:
+                        return HarnessSupport.defaultValue(method.getReturnType());
+                }
+            });
+            replies.add(new Reply(session, reply, System.nanoTime() + replyNanos));
+        }
+    }
+
+    private static final class Reply {
+        final ResponderSession session;
+        final BytesXMLMessage message;
+        final long dueNanos;
+
+        Reply(ResponderSession session, BytesXMLMessage message, long dueNanos) {
+            this.session = session;
+            this.message = message;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private static final class ResponderSession extends HarnessSupport.FakeSession {
+        private static final AtomicLong TEMPORARY_TOPICS = new AtomicLong();
+
+        private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+        private final XMLMessageProducer producer;
+
+        ResponderSession(Responder responder) {
+            this.producer = HarnessSupport.proxy(XMLMessageProducer.class, (proxy, method, args) -> {
+                if ("send".equals(method.getName())) {
+                    if (closed) {
+                        throw new JCSMPException("Harness session closed");
+                    }
+                    responder.onRequest(this, (XMLMessage) args[0]);
+                    return null;
+                }
+                return HarnessSupport.defaultValue(method.getReturnType());
+            });
+        }
+
+        @Override
+        XMLMessageProducer producer() {
+            return producer;
+        }
+
+        @Override
+        Object other(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createTemporaryTopic":
+                    return JCSMPFactory.onlyInstance().createTopic("#P2P/QTMP/harness/" + TEMPORARY_TOPICS.incrementAndGet());
+                case "addSubscription":
+                    subscriptions.add(((Topic) args[0]).getName());
+                    return null;
+                default:
+                    return super.other(proxy, method, args);
+            }
+        }
+
+        // Like the broker, only routes a reply to a session subscribed to its topic
+        void deliver(BytesXMLMessage reply) {
+            XMLMessageListener listener = messageListener;
+            if (!closed && listener != null && subscriptions.contains(reply.getDestination().getName())) {
+                listener.onReceive(reply);
+            }
+        }
+    }
+}
\ No newline at end of file
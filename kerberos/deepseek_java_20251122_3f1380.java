@@ -0,0 +1,438 @@
+// GuaranteedPublisher.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+// Persistent publishing with a bounded window of unacknowledged messages.
+// In-flight messages are tracked by a long correlation id in a map owned by the sender thread;
+// publishing threads and JCSMP's ack thread only ever hand it work through lock-free queues.
+public class GuaranteedPublisher implements JCSMPStreamingPublishCorrelatingEventHandler {
+    private static final Logger logger = LoggerFactory.getLogger(GuaranteedPublisher.class);
+
+    // How long JCSMP's thread waits for room when the sender has fallen a full window behind
+    private static final long RESPONSE_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int MAX_SENDS_PER_PASS = 256;
+    // Set in admission once shutdown has begun; the bits below it count submits still in progress
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final String name;
+    private final int windowSize;
+    private final Semaphore window;
+    private final AtomicLong nextCorrelationId = new AtomicLong(1);
+    private final AtomicInteger admission = new AtomicInteger();
+    private final MpscRingBuffer<InFlight> submitted;
+    // Acked InFlight records, or Nack wrappers; duplicates are possible after a retransmit
+    private final MpscRingBuffer<Object> responses;
+    private final LongObjectHashMap<InFlight> inFlight;
+    // Sender thread only: sends JCSMP refused while the session was down, in publish order. JCSMP resends
+    // what it accepted after RECONNECTED by itself, so these are all that must go out again on the same producer.
+    private final ArrayDeque<InFlight> deferred = new ArrayDeque<>();
+    private final Counter ackedMessages;
+    private final Counter nackedMessages;
+    private final Counter rejectedMessages;
+    private final Counter retransmittedMessages;
+    private final Timer ackLatency;
+    private final ConsumerParker parker = new ConsumerParker();
+    private final BooleanSupplier senderHasWork = this::senderHasWork;
+
+    private volatile XMLMessageProducer producer;
+    private volatile boolean connected;
+    private volatile boolean retransmitRequested;
+    // Bumped by every attach and reconnect. A send that fails on the connection holds further sends until
+    // the epoch moves on, since the rest would only fail the same way while the connected flag catches up.
+    private volatile int connectionEpoch;
+    // Sender thread only: the epoch of the current pass, and the one whose session failed a send
+    private int passEpoch;
+    private int heldEpoch = -1;
+    private volatile boolean running;
+    private Thread senderThread;
+
+    public GuaranteedPublisher(String name, SolaceConfig config, ClientMetrics metrics) {
+        this.name = name;
+        this.windowSize = Math.max(2, config.getGuaranteedWindowSize());
+        this.window = new Semaphore(windowSize);
+        this.submitted = new MpscRingBuffer<>(windowSize);
+        this.responses = new MpscRingBuffer<>(windowSize * 2);
+        this.inFlight = new LongObjectHashMap<>(windowSize);
+
+        this.ackedMessages = metrics.counter("solace.guaranteed.messages", "client", name, "outcome", "acked");
+        this.nackedMessages = metrics.counter("solace.guaranteed.messages", "client", name, "outcome", "nacked");
+        this.rejectedMessages = metrics.counter("solace.guaranteed.messages", "client", name, "outcome", "rejected");
+        this.retransmittedMessages = metrics.counter("solace.guaranteed.messages", "client", name, "outcome", "retransmitted");
+        this.ackLatency = metrics.timer("solace.guaranteed.ack.latency", "client", name);
+        metrics.gauge("solace.guaranteed.in.flight", window, w -> windowSize - w.availablePermits(), "client", name);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        senderThread = new Thread(this::runSender, "solace-guaranteed-" + name);
+        senderThread.setDaemon(true);
+        senderThread.start();
+        logger.info("Guaranteed publisher {} started (window {})", name, windowSize);
+    }
+
+    // Never blocks. Returns the correlation id later passed to the callback, or -1 when the window is full.
+    // The payload is copied, so the caller may reuse it as soon as this returns.
+    public long publish(Destination destination, byte[] payload, AckCallback callback) {
+        InFlight message = submit(destination, payload, callback, null);
+        return message != null ? message.id : -1;
+    }
+
+    // Completes on the sender thread, so dependent stages must not block
+    public CompletableFuture<Void> publish(Destination destination, byte[] payload) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (submit(destination, payload, null, future) == null) {
+            future.completeExceptionally(new IllegalStateException(
+                "Guaranteed publish window of " + windowSize + " messages is full"));
+        }
+        return future;
+    }
+
+    private InFlight submit(Destination destination, byte[] payload, AckCallback callback,
+                            CompletableFuture<Void> future) {
+        if (!running || !enter()) {
+            rejectedMessages.increment();
+            return null;
+        }
+        try {
+            if (!window.tryAcquire()) {
+                rejectedMessages.increment();
+                return null;
+            }
+            return enqueue(destination, payload, callback, future);
+        } finally {
+            admission.decrementAndGet();
+        }
+    }
+
+    // Counts this submit in, unless shutdown has closed admission
+    private boolean enter() {
+        while (true) {
+            int state = admission.get();
+            if ((state & CLOSED) != 0) {
+                return false;
+            }
+            if (admission.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private InFlight enqueue(Destination destination, byte[] payload, AckCallback callback,
+                             CompletableFuture<Void> future) {
+        BytesXMLMessage message = JCSMPFactory.onlyInstance().createMessage(BytesXMLMessage.class);
+        // Kept until the ack arrives, since it may have to be sent again
+        message.writeAttachment(payload.clone());
+        message.setDeliveryMode(DeliveryMode.PERSISTENT);
+        InFlight record = new InFlight(nextCorrelationId.getAndIncrement(), message, destination, callback, future);
+        // The record itself is the correlation key, so acks come back without a boxed id
+        message.setCorrelationKey(record);
+
+        // Cannot fail: a permit is held and the queue is as large as the window
+        submitted.offer(record);
+        parker.wake();
+        return record;
+    }
+
+    public int getInFlightCount() {
+        return windowSize - window.availablePermits();
+    }
+
+    void attach(XMLMessageProducer producer) {
+        this.producer = producer;
+        // Anything outstanding on a previous session will never be acknowledged
+        retransmitRequested = true;
+        connectionEpoch++;
+        parker.wake();
+    }
+
+    void setConnected(boolean connected) {
+        this.connected = connected;
+        if (connected) {
+            connectionEpoch++;
+        }
+        parker.wake();
+    }
+
+    void detach() {
+        producer = null;
+    }
+
+    // The sender thread settles everything outstanding as it exits, so nothing here touches inFlight
+    public synchronized void shutdown() {
+        // Once every submit already admitted has queued its message, the sender's final drain sees them all
+        int state;
+        do {
+            state = admission.get();
+        } while ((state & CLOSED) == 0 && !admission.compareAndSet(state, state | CLOSED));
+        while (admission.get() != CLOSED) {
+            Thread.yield();
+        }
+
+        running = false;
+        detach();
+        if (senderThread == null) {
+            return;
+        }
+        LockSupport.unpark(senderThread);
+        try {
+            senderThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (senderThread.isAlive()) {
+            logger.warn("Guaranteed publisher {} sender is still busy, probably in a callback; it fails the "
+                + "unacknowledged messages once it returns", name);
+        }
+        senderThread = null;
+    }
+
+    private void runSender() {
+        try {
+            sendUntilStopped();
+        } finally {
+            settleOnShutdown();
+        }
+    }
+
+    // Acks that arrived before the sender stopped still count as acks; everything else fails
+    private void settleOnShutdown() {
+        drainResponses();
+        InFlight pending;
+        while ((pending = submitted.poll()) != null) {
+            inFlight.put(pending.id, pending);
+        }
+        deferred.clear();
+        if (!inFlight.isEmpty()) {
+            logger.warn("Guaranteed publisher {} stopped with {} unacknowledged messages", name, inFlight.size());
+        }
+        JCSMPException shutdown = new JCSMPException("Guaranteed publisher " + name + " shut down");
+        inFlight.forEachValue(message -> resolve(message, shutdown));
+        inFlight.clear();
+    }
+
+    private void sendUntilStopped() {
+        while (running) {
+            boolean worked = drainResponses();
+
+            passEpoch = connectionEpoch;
+            XMLMessageProducer target = connected ? producer : null;
+            if (target != null && passEpoch != heldEpoch) {
+                if (retransmitRequested) {
+                    retransmitRequested = false;
+                    retransmit(target);
+                    worked = true;
+                } else if (!deferred.isEmpty()) {
+                    worked |= sendDeferred(target);
+                }
+                worked |= sendSubmitted(target);
+            }
+
+            if (!worked) {
+                parker.park(senderHasWork);
+            }
+        }
+    }
+
+    // Whether the sender has something to do; every change to any of this wakes it
+    private boolean senderHasWork() {
+        if (!running || !responses.isEmpty()) {
+            return true;
+        }
+        XMLMessageProducer target = connected ? producer : null;
+        return target != null && connectionEpoch != heldEpoch
+            && (retransmitRequested || !deferred.isEmpty() || !submitted.isEmpty());
+    }
+
+    private boolean sessionUsable() {
+        return connected && passEpoch != heldEpoch;
+    }
+
+    private boolean sendSubmitted(XMLMessageProducer target) {
+        int sent = 0;
+        InFlight message;
+        while (sent < MAX_SENDS_PER_PASS && sessionUsable() && (message = submitted.poll()) != null) {
+            inFlight.put(message.id, message);
+            message.sentNanos = System.nanoTime();
+            send(target, message);
+            sent++;
+        }
+        return sent > 0;
+    }
+
+    private void send(XMLMessageProducer target, InFlight message) {
+        try {
+            target.send(message.message, message.destination);
+        } catch (JCSMPException e) {
+            if (isConnectionError(e)) {
+                // Stays in flight and goes out again once the session is back
+                deferred.addLast(message);
+                heldEpoch = passEpoch;
+                logger.debug("Guaranteed publisher {} deferring message {}: {}", name, message.id, e.getMessage());
+            } else {
+                // The session is up, so the message itself was refused
+                inFlight.remove(message.id);
+                resolve(message, e);
+            }
+        }
+    }
+
+    // Errors that say the session or producer is gone rather than that the broker refused this message.
+    // The connected flag alone lags the session: a send can fail on a dropped transport before it changes.
+    private boolean isConnectionError(JCSMPException e) {
+        return !connected || e instanceof JCSMPTransportException || e instanceof ClosedFacilityException;
+    }
+
+    private boolean sendDeferred(XMLMessageProducer target) {
+        int sent = 0;
+        while (sessionUsable() && !deferred.isEmpty()) {
+            InFlight message = deferred.pollFirst();
+            if (inFlight.get(message.id) == message) {
+                send(target, message);
+                sent++;
+            }
+        }
+        return sent > 0;
+    }
+
+    // Resends in publish order. The broker may already have persisted some of these, so delivery is at-least-once.
+    private void retransmit(XMLMessageProducer target) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        // A full pass covers everything deferred as well
+        deferred.clear();
+        List<InFlight> pending = new ArrayList<>(inFlight.size());
+        inFlight.forEachValue(pending::add);
+        pending.sort(Comparator.comparingLong(message -> message.id));
+
+        logger.info("Guaranteed publisher {} retransmitting {} unacknowledged messages", name, pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            if (!sessionUsable()) {
+                // Dropped again before JCSMP saw the rest; they go out once the session is back
+                deferred.addAll(pending.subList(i, pending.size()));
+                break;
+            }
+            send(target, pending.get(i));
+            retransmittedMessages.increment();
+        }
+    }
+
+    private boolean drainResponses() {
+        boolean drained = false;
+        Object response;
+        while ((response = responses.poll()) != null) {
+            drained = true;
+            InFlight message = response instanceof Nack ? ((Nack) response).message : (InFlight) response;
+            if (inFlight.get(message.id) != message) {
+                // A second response for a retransmitted message
+                continue;
+            }
+            inFlight.remove(message.id);
+            ackLatency.record(System.nanoTime() - message.sentNanos, TimeUnit.NANOSECONDS);
+            resolve(message, response instanceof Nack ? ((Nack) response).cause : null);
+        }
+        return drained;
+    }
+
+    private void resolve(InFlight message, JCSMPException failure) {
+        window.release();
+        if (failure == null) {
+            ackedMessages.increment();
+        } else {
+            nackedMessages.increment();
+        }
+
+        try {
+            if (message.callback != null) {
+                if (failure == null) {
+                    message.callback.onAck(message.id);
+                } else {
+                    message.callback.onNack(message.id, failure);
+                }
+            } else if (failure == null) {
+                message.future.complete(null);
+            } else {
+                message.future.completeExceptionally(failure);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Guaranteed publish callback threw for message {}", message.id, e);
+        }
+    }
+
+    @Override
+    public void responseReceivedEx(Object key) {
+        if (key instanceof InFlight) {
+            respond(key);
+        }
+    }
+
+    @Override
+    public void handleErrorEx(Object key, JCSMPException cause, long timestamp) {
+        if (key instanceof InFlight) {
+            respond(new Nack((InFlight) key, cause));
+        } else {
+            logger.error("Asynchronous publish error on {}: {}", name, cause.getMessage());
+        }
+    }
+
+    // Runs on JCSMP's thread; only waits if the sender thread has fallen a full window behind
+    private void respond(Object response) {
+        while (!responses.offer(response) && running) {
+            LockSupport.parkNanos(RESPONSE_BACKOFF_NANOS);
+        }
+        parker.wake();
+    }
+
+    public interface AckCallback {
+        // Both callbacks run on the sender thread and must not block
+        void onAck(long correlationId);
+
+        void onNack(long correlationId, JCSMPException cause);
+    }
+
+    private static final class InFlight {
+        final long id;
+        final BytesXMLMessage message;
+        final Destination destination;
+        final AckCallback callback;
+        final CompletableFuture<Void> future;
+        long sentNanos;
+
+        InFlight(long id, BytesXMLMessage message, Destination destination,
+                 AckCallback callback, CompletableFuture<Void> future) {
+            this.id = id;
+            this.message = message;
+            this.destination = destination;
+            this.callback = callback;
+            this.future = future;
+        }
+    }
+
+    private static final class Nack {
+        final InFlight message;
+        final JCSMPException cause;
+
+        Nack(InFlight message, JCSMPException cause) {
+            this.message = message;
+            this.cause = cause;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,266 @@
+// SpnegoTokenService.java
+import org.ietf.jgss.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.*;
+
+@Component
+public class SpnegoTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(SpnegoTokenService.class);
+
+    private static final Oid SPNEGO_MECHANISM = oid("1.3.6.1.5.5.2");
+    private static final Oid KRB5_PRINCIPAL_NAME = oid("1.2.840.113554.1.2.2.1");
+
+    private final KerberosAuthManager authManager;
+    private final KerberosConfig config;
+    private final GSSManager gssManager = GSSManager.getInstance();
+
+    // One entry per SPN; an incomplete future means a TGS exchange is in flight for it
+    private final ConcurrentHashMap<String, CompletableFuture<ServiceTicket>> tickets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService prefetcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spnego-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SpnegoTokenService(KerberosAuthManager authManager, KerberosConfig config) {
+        this.authManager = authManager;
+        this.config = config;
+        authManager.addCredentialListener(this::onCredentialsRotated);
+    }
+
+    public String getNegotiateHeader(String spn) throws KerberosAuthException {
+        return "Negotiate " + Base64.getEncoder().encodeToString(getToken(spn));
+    }
+
+    // Accepts "service/host[@REALM]" principal names or "service@host" host-based names
+    public byte[] getToken(String spn) throws KerberosAuthException {
+        Subject subject = authManager.getSubject();
+        if (subject == null) {
+            throw new KerberosAuthException("No Kerberos credentials available");
+        }
+
+        CompletableFuture<ServiceTicket> entry = tickets.get(spn);
+        if (entry != null && !entry.isDone()) {
+            await(spn, entry);
+            return initSecContext(spn, subject);
+        }
+
+        ServiceTicket ticket = entry != null ? entry.getNow(null) : null;
+        if (ticket != null && ticket.isUsable(subject, System.currentTimeMillis())) {
+            // The service ticket is already in the Subject, so this never reaches the KDC
+            ticket.lastUsedMs = System.currentTimeMillis();
+            return initSecContext(spn, subject);
+        }
+
+        return acquire(spn, subject, entry, false);
+    }
+
+    private byte[] acquire(String spn, Subject subject, CompletableFuture<ServiceTicket> stale, boolean prefetch)
+            throws KerberosAuthException {
+        CompletableFuture<ServiceTicket> fetch = new CompletableFuture<>();
+        boolean owner = stale == null
+            ? tickets.putIfAbsent(spn, fetch) == null
+            : tickets.replace(spn, stale, fetch);
+
+        if (!owner) {
+            CompletableFuture<ServiceTicket> current = tickets.get(spn);
+            if (current != null) {
+                await(spn, current);
+            }
+            return initSecContext(spn, subject);
+        }
+
+        try {
+            ServiceTicket previous = stale != null ? stale.getNow(null) : null;
+            if (previous != null && previous.subject == subject) {
+                forgetServiceTicket(spn, subject);
+            }
+            // The JDK stores the ticket from this TGS exchange in the Subject for later contexts
+            byte[] token = initSecContext(spn, subject);
+            long endTimeMs = serviceTicketEndTime(spn, subject);
+            long refreshAtMs = endTimeMs - config.getServiceTicketRefreshBufferMs();
+            // A TGT ending inside the buffer caps any newer ticket too, so this one is used until it expires
+            // and the TGT rotation warms its successor
+            boolean refreshable = refreshAtMs > System.currentTimeMillis();
+            ServiceTicket ticket = new ServiceTicket(subject, endTimeMs, refreshable ? refreshAtMs : endTimeMs);
+            if (prefetch && previous != null) {
+                // Prefetching is not a use; keep the idle clock running
+                ticket.lastUsedMs = previous.lastUsedMs;
+            }
+            fetch.complete(ticket);
+            if (refreshable) {
+                schedulePrefetch(spn, ticket);
+            }
+            logger.debug("Acquired service ticket for {} valid until {}", spn, ticket.endTimeMs);
+            return token;
+        } catch (KerberosAuthException e) {
+            tickets.remove(spn, fetch);
+            fetch.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void await(String spn, CompletableFuture<ServiceTicket> fetch) throws KerberosAuthException {
+        try {
+            fetch.get(config.getRefreshAwaitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new KerberosAuthException("Failed to acquire service ticket for " + spn, e.getCause());
+        } catch (TimeoutException e) {
+            throw new KerberosAuthException("Timed out acquiring service ticket for " + spn, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KerberosAuthException("Interrupted while acquiring service ticket for " + spn, e);
+        }
+    }
+
+    private byte[] initSecContext(String spn, Subject subject) throws KerberosAuthException {
+        try {
+            return Subject.doAs(subject, (PrivilegedExceptionAction<byte[]>) () -> {
+                Oid nameType = spn.indexOf('/') >= 0 ? KRB5_PRINCIPAL_NAME : GSSName.NT_HOSTBASED_SERVICE;
+                GSSName server = gssManager.createName(spn, nameType);
+                GSSContext context = gssManager.createContext(
+                    server, SPNEGO_MECHANISM, null, GSSContext.DEFAULT_LIFETIME);
+                try {
+                    context.requestCredDeleg(false);
+                    return context.initSecContext(new byte[0], 0, 0);
+                } finally {
+                    context.dispose();
+                }
+            });
+        } catch (PrivilegedActionException e) {
+            throw new KerberosAuthException("Failed to create SPNEGO token for " + spn, e.getException());
+        }
+    }
+
+    private long serviceTicketEndTime(String spn, Subject subject) {
+        String principal = toPrincipalPrefix(spn);
+        long tgtEnd = 0;
+        for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            if (isTicketFor(ticket, principal)) {
+                return ticket.getEndTime().getTime();
+            }
+            if (ticket.getServer().getName().startsWith("krbtgt/")) {
+                tgtEnd = ticket.getEndTime().getTime();
+            }
+        }
+        // A service ticket never outlives the TGT it was issued from
+        return tgtEnd;
+    }
+
+    // initSecContext reuses a service ticket it finds in the Subject for as long as it is valid, so a
+    // refresh has to take the old one out first; locked like the JDK's own removal of expired tickets
+    private static void forgetServiceTicket(String spn, Subject subject) {
+        String principal = toPrincipalPrefix(spn);
+        Set<Object> credentials = subject.getPrivateCredentials();
+        synchronized (credentials) {
+            credentials.removeIf(c -> c instanceof KerberosTicket && isTicketFor((KerberosTicket) c, principal));
+        }
+    }
+
+    private static boolean isTicketFor(KerberosTicket ticket, String principal) {
+        String server = ticket.getServer().getName();
+        return server.equals(principal) || server.startsWith(principal + "@");
+    }
+
+    private static String toPrincipalPrefix(String spn) {
+        if (spn.indexOf('/') >= 0) {
+            int realm = spn.indexOf('@');
+            return realm >= 0 ? spn.substring(0, realm) : spn;
+        }
+        return spn.replace('@', '/');
+    }
+
+    // Once per ticket; the prefetch does nothing if a caller has replaced the ticket by then
+    private void schedulePrefetch(String spn, ServiceTicket ticket) {
+        long delayMs = ticket.refreshAtMs - System.currentTimeMillis();
+        try {
+            prefetcher.schedule(() -> prefetch(spn, ticket), Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Prefetcher stopped, not scheduling refresh for {}", spn);
+        }
+    }
+
+    private void prefetch(String spn, ServiceTicket expected) {
+        CompletableFuture<ServiceTicket> entry = tickets.get(spn);
+        if (entry == null || entry.getNow(null) != expected) {
+            return;
+        }
+
+        if (System.currentTimeMillis() - expected.lastUsedMs > config.getServiceTicketIdleEvictMs()) {
+            tickets.remove(spn, entry);
+            logger.debug("Evicted idle service ticket entry for {}", spn);
+            return;
+        }
+
+        Subject subject = authManager.getSubject();
+        if (subject == null) {
+            return;
+        }
+        try {
+            acquire(spn, subject, entry, true);
+        } catch (KerberosAuthException e) {
+            logger.warn("Service ticket prefetch for {} failed: {}", spn, e.getMessage());
+        }
+    }
+
+    // A rotated Subject starts without service tickets, so warm it before callers need them
+    private void onCredentialsRotated(Subject subject) {
+        for (String spn : tickets.keySet()) {
+            try {
+                prefetcher.execute(() -> {
+                    CompletableFuture<ServiceTicket> entry = tickets.get(spn);
+                    if (entry == null || !entry.isDone()) {
+                        return;
+                    }
+                    try {
+                        acquire(spn, subject, entry, true);
+                    } catch (KerberosAuthException e) {
+                        logger.warn("Failed to warm service ticket for {}: {}", spn, e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    public void shutdown() {
+        prefetcher.shutdownNow();
+        tickets.clear();
+        logger.info("SpnegoTokenService shutdown complete");
+    }
+
+    private static Oid oid(String value) {
+        try {
+            return new Oid(value);
+        } catch (GSSException e) {
+            throw new IllegalStateException("Invalid OID " + value, e);
+        }
+    }
+
+    private static final class ServiceTicket {
+        final Subject subject;
+        final long endTimeMs;
+        final long refreshAtMs;
+        volatile long lastUsedMs = System.currentTimeMillis();
+
+        ServiceTicket(Subject subject, long endTimeMs, long refreshAtMs) {
+            this.subject = subject;
+            this.endTimeMs = endTimeMs;
+            this.refreshAtMs = refreshAtMs;
+        }
+
+        boolean isUsable(Subject current, long nowMs) {
+            return subject == current && refreshAtMs > nowMs;
+        }
+    }
+}
\ No newline at end of file
@@ -1,35 +1,86 @@
 // SolaceHealthIndicator.java
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Component
 public class SolaceHealthIndicator implements HealthIndicator {
-    private final SolaceClient solaceClient;
+    // Health is immutable and depends only on the state, so every possible single-session answer is built once
+    private static final Map<ConnectionState, Health> HEALTH_BY_STATE = new EnumMap<>(ConnectionState.class);
+
+    static {
+        for (ConnectionState state : ConnectionState.values()) {
+            Health.Builder builder = state == ConnectionState.CONNECTED ? Health.up() : Health.down();
+            HEALTH_BY_STATE.put(state, builder
+                .withDetail("connectionState", state)
+                .withDetail("broker", state == ConnectionState.CONNECTED ? "connected" : "disconnected")
+                .build());
+        }
+    }
+
+    private final SolaceClient[] shards;
+    // The state each shard last pushed, by shard index; guarded by this
+    private final ConnectionState[] states;
+    private volatile Health health;
+
+    // Up only while every shard is connected, since a key hashed to a disconnected shard cannot be published
+    @Autowired
+    public SolaceHealthIndicator(ShardedSolaceClient shardedClient) {
+        this(shardsOf(shardedClient));
+    }
 
     public SolaceHealthIndicator(SolaceClient solaceClient) {
-        this.solaceClient = solaceClient;
+        this(new SolaceClient[] {solaceClient});
     }
 
-    @Override
-    public Health health() {
-        try {
-            if (solaceClient.isConnected()) {
-                return Health.up()
-                    .withDetail("connectionState", solaceClient.getConnectionState())
-                    .withDetail("broker", "connected")
-                    .build();
-            } else {
-                return Health.down()
-                    .withDetail("connectionState", solaceClient.getConnectionState())
-                    .withDetail("broker", "disconnected")
-                    .build();
+    private SolaceHealthIndicator(SolaceClient[] shards) {
+        this.shards = shards;
+        this.states = new ConnectionState[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            shards[i].addStateListener((previous, current) -> update(shard, current));
+            update(shard, shards[i].getConnectionState());
+        }
+    }
+
+    private static SolaceClient[] shardsOf(ShardedSolaceClient shardedClient) {
+        SolaceClient[] shards = new SolaceClient[shardedClient.getShardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = shardedClient.getShard(i);
+        }
+        return shards;
+    }
+
+    // Runs on each shard's event thread; rebuilt only on a state change, so a probe stays a volatile read
+    private synchronized void update(int shard, ConnectionState state) {
+        states[shard] = state;
+        if (shards.length == 1) {
+            health = HEALTH_BY_STATE.get(state);
+            return;
+        }
+
+        int connected = 0;
+        Map<String, ConnectionState> byShard = new LinkedHashMap<>();
+        for (int i = 0; i < shards.length; i++) {
+            if (states[i] == ConnectionState.CONNECTED) {
+                connected++;
             }
-        } catch (Exception e) {
-            return Health.down()
-                .withDetail("error", e.getMessage())
-                .withDetail("connectionState", "ERROR")
-                .build();
+            byShard.put(shards[i].getName(), states[i]);
         }
+        Health.Builder builder = connected == shards.length ? Health.up() : Health.down();
+        health = builder
+            .withDetail("connectedShards", connected + "/" + shards.length)
+            .withDetail("shards", byShard)
+            .build();
+    }
+
+    @Override
+    public Health health() {
+        return health;
     }
 }
\ No newline at end of file
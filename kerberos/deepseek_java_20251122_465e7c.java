@@ -11,17 +11,28 @@ public class ApplicationShutdownHook implements ApplicationListener<ContextClose
 
     private final KerberosAuthManager authManager;
     private final SolaceClient solaceClient;
+    private final ShardedSolaceClient shardedClient;
+    private final SpnegoTokenService tokenService;
+    private final KerberosCredentialRegistry credentialRegistry;
 
-    public ApplicationShutdownHook(KerberosAuthManager authManager, SolaceClient solaceClient) {
+    public ApplicationShutdownHook(KerberosAuthManager authManager, SolaceClient solaceClient,
+                                   ShardedSolaceClient shardedClient, SpnegoTokenService tokenService,
+                                   KerberosCredentialRegistry credentialRegistry) {
         this.authManager = authManager;
         this.solaceClient = solaceClient;
+        this.shardedClient = shardedClient;
+        this.tokenService = tokenService;
+        this.credentialRegistry = credentialRegistry;
     }
 
     @Override
     public void onApplicationEvent(ContextClosedEvent event) {
         logger.info("Application shutdown initiated...");
         
+        shardedClient.shutdown();
         solaceClient.shutdown();
+        tokenService.shutdown();
+        credentialRegistry.shutdown();
         authManager.shutdown();
         
         logger.info("Application shutdown complete");
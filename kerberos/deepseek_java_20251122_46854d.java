@@ -0,0 +1,180 @@
+// EndpointLatencyTracker.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Ranks interchangeable endpoints (KDCs, broker hosts) by recent latency and failures, and derives
+// how long to wait on one before hedging to the next from its own latency distribution
+public class EndpointLatencyTracker {
+    private static final int WINDOW = 128;
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final int MAX_PENALTY_MULTIPLIER = 8;
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final long maxHedgeDelayNanos;
+    private final long failurePenaltyNanos;
+
+    // For endpoints that are only ranked and failed over, never hedged
+    public EndpointLatencyTracker(List<String> endpoints, long failurePenaltyMs) {
+        this(endpoints, 100, 0, 0, failurePenaltyMs);
+    }
+
+    public EndpointLatencyTracker(List<String> endpoints, double hedgePercentile,
+                                  long minHedgeDelayMs, long maxHedgeDelayMs, long failurePenaltyMs) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        for (String endpoint : endpoints) {
+            if (!this.endpoints.containsKey(endpoint)) {
+                this.endpoints.put(endpoint, new Endpoint(endpoint, this.endpoints.size()));
+            }
+        }
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMs);
+        this.maxHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxHedgeDelayMs);
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(failurePenaltyMs);
+    }
+
+    // Healthy endpoints fastest first, then overdue ones, then penalized ones by how soon their penalty
+    // ends. Endpoints never measured rank as fast so each one gets sampled; ties keep configured order.
+    public List<String> ranked() {
+        long now = System.nanoTime();
+        List<Endpoint> snapshot = new ArrayList<>(endpoints.values());
+        long[] penalties = new long[snapshot.size()];
+        long[] latencies = new long[snapshot.size()];
+        boolean[] overdue = new boolean[snapshot.size()];
+        for (Endpoint endpoint : snapshot) {
+            synchronized (endpoint) {
+                penalties[endpoint.order] = endpoint.consecutiveFailures > 0
+                    ? Math.max(0, endpoint.penalizedUntilNanos - now)
+                    : 0;
+                latencies[endpoint.order] = (long) endpoint.ewmaNanos;
+                overdue[endpoint.order] = endpoint.overdue;
+            }
+        }
+        snapshot.sort((a, b) -> {
+            int byPenalty = Long.compare(penalties[a.order], penalties[b.order]);
+            if (byPenalty != 0) {
+                return byPenalty;
+            }
+            int byOverdue = Boolean.compare(overdue[a.order], overdue[b.order]);
+            if (byOverdue != 0) {
+                return byOverdue;
+            }
+            int byLatency = Long.compare(latencies[a.order], latencies[b.order]);
+            return byLatency != 0 ? byLatency : Integer.compare(a.order, b.order);
+        });
+
+        List<String> ranked = new ArrayList<>(snapshot.size());
+        for (Endpoint endpoint : snapshot) {
+            ranked.add(endpoint.name);
+        }
+        return ranked;
+    }
+
+    public List<String> getEndpoints() {
+        return Collections.unmodifiableList(new ArrayList<>(endpoints.keySet()));
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public void recordSuccess(String endpoint, long elapsedNanos) {
+        Endpoint stats = endpoints.get(endpoint);
+        if (stats == null) {
+            return;
+        }
+        synchronized (stats) {
+            stats.samples[stats.next] = elapsedNanos;
+            stats.next = (stats.next + 1) % WINDOW;
+            stats.count = Math.min(stats.count + 1, WINDOW);
+            stats.ewmaNanos = stats.ewmaNanos == 0
+                ? elapsedNanos
+                : stats.ewmaNanos + EWMA_WEIGHT * (elapsedNanos - stats.ewmaNanos);
+            stats.consecutiveFailures = 0;
+            stats.penalizedUntilNanos = 0;
+            stats.overdue = false;
+        }
+    }
+
+    // The endpoint missed its hedge deadline; until that attempt ends it ranks behind every
+    // endpoint that has not, instead of staying first on a latency it no longer delivers
+    public void recordOverdue(String endpoint) {
+        Endpoint stats = endpoints.get(endpoint);
+        if (stats == null) {
+            return;
+        }
+        synchronized (stats) {
+            stats.overdue = true;
+        }
+    }
+
+    // Each consecutive failure lengthens the penalty, up to a cap
+    public void recordFailure(String endpoint) {
+        Endpoint stats = endpoints.get(endpoint);
+        if (stats == null) {
+            return;
+        }
+        synchronized (stats) {
+            stats.consecutiveFailures++;
+            stats.overdue = false;
+            long multiplier = Math.min(stats.consecutiveFailures, MAX_PENALTY_MULTIPLIER);
+            stats.penalizedUntilNanos = System.nanoTime() + failurePenaltyNanos * multiplier;
+        }
+    }
+
+    // The configured percentile of recent successes, clamped. Until there are samples it is the maximum:
+    // nothing says the endpoint is fast, and a short guess would send every fresh client's first login or
+    // handshake to two endpoints at once.
+    public long hedgeDelayNanos(String endpoint) {
+        Endpoint stats = endpoints.get(endpoint);
+        if (stats == null) {
+            return maxHedgeDelayNanos;
+        }
+        long[] sorted;
+        synchronized (stats) {
+            if (stats.count == 0) {
+                return maxHedgeDelayNanos;
+            }
+            sorted = Arrays.copyOf(stats.samples, stats.count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(hedgePercentile / 100.0 * sorted.length) - 1;
+        long delay = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        return Math.max(minHedgeDelayNanos, Math.min(delay, maxHedgeDelayNanos));
+    }
+
+    public double latencyMillis(String endpoint) {
+        Endpoint stats = endpoints.get(endpoint);
+        if (stats == null) {
+            return 0;
+        }
+        synchronized (stats) {
+            return stats.ewmaNanos / 1_000_000.0;
+        }
+    }
+
+    private static final class Endpoint {
+        final String name;
+        final int order;
+        final long[] samples = new long[WINDOW];
+        int next;
+        int count;
+        double ewmaNanos;
+        int consecutiveFailures;
+        long penalizedUntilNanos;
+        boolean overdue;
+
+        Endpoint(String name, int order) {
+            this.name = name;
+            this.order = order;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+// StartupTimings.java
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Per-phase startup durations, published under the actuator info endpoint
+@Component
+public class StartupTimings implements InfoContributor {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimings.class);
+
+    private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public void record(String phase, long startNanos) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        phaseMillis.put(phase, elapsedMs);
+        logger.info("Startup phase '{}' took {}ms", phase, elapsedMs);
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        synchronized (phaseMillis) {
+            return new LinkedHashMap<>(phaseMillis);
+        }
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        builder.withDetail("startupPhasesMs", getPhaseMillis());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,282 @@
+// KerberosCredentialRegistry.java
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.*;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+// Many principals on one timer thread and a bounded KDC pool, instead of a manager per principal
+@Component
+public class KerberosCredentialRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(KerberosCredentialRegistry.class);
+
+    // KDC errors another try with the same password cannot fix; retrying them only walks the account
+    // towards its lockout threshold
+    private static final String[] CREDENTIAL_ERRORS = {
+        "Pre-authentication information was invalid",
+        "Integrity check on decrypted field failed",
+        "Client not found in Kerberos database",
+        "Clients credentials have been revoked",
+        "Password has expired"
+    };
+
+    private final KerberosConfig config;
+    private final ConcurrentHashMap<String, PrincipalCredentials> principals = new ConcurrentHashMap<>();
+    private final HashedTimerWheel timer;
+    private final ThreadPoolExecutor kdcPool;
+    private final RetryPolicy loginRetryPolicy;
+
+    public KerberosCredentialRegistry(KerberosConfig config) {
+        this.config = config;
+        this.loginRetryPolicy = new RetryPolicy(config.getRetryDelayMs(), config.getRegistryRetryMaxDelayMs(),
+            Integer.MAX_VALUE);
+        this.timer = new HashedTimerWheel("kerberos-registry-timer",
+            config.getRegistryTimerTickMs(), TimeUnit.MILLISECONDS, 512);
+        this.kdcPool = new ThreadPoolExecutor(
+            config.getRegistryKdcThreads(), config.getRegistryKdcThreads(),
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(config.getRegistryKdcQueueCapacity()),
+            r -> {
+                Thread t = new Thread(r, "kerberos-registry-kdc");
+                t.setDaemon(true);
+                return t;
+            });
+        kdcPool.allowCoreThreadTimeOut(true);
+    }
+
+    // Completes with the first Subject, or the latest once a login has succeeded; refreshes are
+    // scheduled automatically afterwards
+    public CompletableFuture<Subject> register(String principal, char[] password) {
+        PrincipalCredentials entry = new PrincipalCredentials(principal, password.clone());
+        PrincipalCredentials existing = principals.putIfAbsent(principal, entry);
+        if (existing != null) {
+            entry.clearPassword();
+            return existing.loginResult;
+        }
+
+        ensureKrb5Properties();
+        submitLogin(entry);
+        return entry.loginResult;
+    }
+
+    // KerberosAuthManager normally sets these; the registry may be used without it
+    private void ensureKrb5Properties() {
+        KerberosAuthManager.KDC_ORDER_LOCK.writeLock().lock();
+        try {
+            if (System.getProperty("java.security.krb5.kdc") == null && !config.getKdcList().isEmpty()) {
+                System.setProperty("java.security.krb5.kdc", String.join(" ", config.getKdcList()));
+            }
+            if (System.getProperty("java.security.krb5.realm") == null && config.getRealm() != null) {
+                System.setProperty("java.security.krb5.realm", config.getRealm());
+            }
+        } finally {
+            KerberosAuthManager.KDC_ORDER_LOCK.writeLock().unlock();
+        }
+    }
+
+    public Subject getSubject(String principal) {
+        PrincipalCredentials entry = principals.get(principal);
+        return entry != null ? entry.subject : null;
+    }
+
+    public boolean isRegistered(String principal) {
+        return principals.containsKey(principal);
+    }
+
+    public int size() {
+        return principals.size();
+    }
+
+    public void unregister(String principal) {
+        PrincipalCredentials entry = principals.remove(principal);
+        if (entry != null) {
+            entry.close();
+            logger.info("Unregistered Kerberos principal {}", principal);
+        }
+    }
+
+    private void submitLogin(PrincipalCredentials entry) {
+        try {
+            kdcPool.execute(() -> login(entry));
+        } catch (RejectedExecutionException e) {
+            // The KDC pool is saturated; spread the retry instead of piling on
+            logger.debug("KDC pool saturated, deferring login for {}", entry.principal);
+            schedule(entry, jittered(config.getRetryDelayMs()));
+        }
+    }
+
+    private void login(PrincipalCredentials entry) {
+        if (entry.closed) {
+            return;
+        }
+
+        try {
+            LoginContext context = new LoginContext("StandardJaasConfig", null,
+                entry.callbackHandler(), new ProgrammaticJaasConfig(entry.principal, config.isDebug()));
+            // Registry logins never set the KDC order, so they run alongside each other but not while a
+            // KerberosAuthManager login has pointed it at its own KDC
+            KerberosAuthManager.KDC_ORDER_LOCK.readLock().lock();
+            try {
+                context.login();
+            } finally {
+                KerberosAuthManager.KDC_ORDER_LOCK.readLock().unlock();
+            }
+
+            KerberosTicket tgt = findTGT(context.getSubject());
+            if (tgt == null) {
+                context.logout();
+                throw new LoginException("Login for " + entry.principal + " produced no TGT");
+            }
+
+            entry.publish(context);
+            entry.failures = 0;
+            // A principal that failed its first login reports the success to later register() calls
+            if (!entry.loginResult.complete(context.getSubject())) {
+                entry.loginResult = CompletableFuture.completedFuture(context.getSubject());
+            }
+
+            long refreshInMs = tgt.getEndTime().getTime() - config.getRefreshBufferMs() - System.currentTimeMillis();
+            schedule(entry, jittered(Math.max(refreshInMs, config.getRetryDelayMs())));
+            logger.debug("Kerberos login for {} valid until {}", entry.principal, tgt.getEndTime());
+        } catch (Throwable e) {
+            // Anything thrown here, a JAAS module's RuntimeException included, would otherwise be swallowed by
+            // the KDC pool and leave the principal with no login result and no retry
+            if (!entry.loginResult.isDone()) {
+                entry.loginResult.completeExceptionally(
+                    new KerberosAuthException("Kerberos login failed for " + entry.principal, e));
+            }
+            if (e instanceof LoginException && isCredentialError(e)) {
+                logger.error("Kerberos login for {} rejected its credentials; not retrying until it is "
+                    + "unregistered and registered again: {}", entry.principal, e.getMessage());
+                return;
+            }
+            long delayMs = loginRetryPolicy.delayMs(++entry.failures);
+            logger.warn("Kerberos login for {} failed (attempt {}), retrying in {}ms: {}",
+                entry.principal, entry.failures, delayMs, e.toString());
+            schedule(entry, delayMs);
+        }
+    }
+
+    private static boolean isCredentialError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message == null) {
+                continue;
+            }
+            for (String error : CREDENTIAL_ERRORS) {
+                if (message.contains(error)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void schedule(PrincipalCredentials entry, long delayMs) {
+        if (entry.closed) {
+            return;
+        }
+        entry.nextRefresh = timer.schedule(() -> submitLogin(entry), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Pulls deadlines earlier by a random amount so tickets issued together do not refresh together
+    private long jittered(long delayMs) {
+        long jitter = Math.min(config.getRegistryRefreshJitterMs(), delayMs / 2);
+        return jitter > 0 ? delayMs - ThreadLocalRandom.current().nextLong(jitter + 1) : delayMs;
+    }
+
+    private static KerberosTicket findTGT(Subject subject) {
+        for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            if (ticket.getServer().getName().startsWith("krbtgt/")) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    public void shutdown() {
+        timer.stop();
+        kdcPool.shutdownNow();
+        for (String principal : principals.keySet()) {
+            unregister(principal);
+        }
+        logger.info("KerberosCredentialRegistry shutdown complete");
+    }
+
+    private final class PrincipalCredentials {
+        final String principal;
+        final char[] password;
+        volatile CompletableFuture<Subject> loginResult = new CompletableFuture<>();
+        // Consecutive failed logins; only touched by the login in progress
+        int failures;
+
+        volatile Subject subject;
+        volatile boolean closed;
+        private LoginContext loginContext;
+        private volatile HashedTimerWheel.Timeout nextRefresh;
+
+        PrincipalCredentials(String principal, char[] password) {
+            this.principal = principal;
+            this.password = password;
+        }
+
+        CallbackHandler callbackHandler() {
+            return callbacks -> {
+                for (Callback cb : callbacks) {
+                    if (cb instanceof PasswordCallback) {
+                        ((PasswordCallback) cb).setPassword(password);
+                    } else if (cb instanceof NameCallback) {
+                        ((NameCallback) cb).setName(principal);
+                    }
+                }
+            };
+        }
+
+        synchronized void publish(LoginContext next) {
+            if (closed) {
+                logout(next);
+                return;
+            }
+            LoginContext previous = loginContext;
+            loginContext = next;
+            subject = next.getSubject();
+
+            if (previous != null) {
+                // Same grace period as the single-principal manager's rotation
+                timer.schedule(() -> logout(previous), config.getRotationGracePeriodMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            HashedTimerWheel.Timeout pending = nextRefresh;
+            if (pending != null) {
+                pending.cancel();
+            }
+            if (loginContext != null) {
+                logout(loginContext);
+                loginContext = null;
+            }
+            subject = null;
+            clearPassword();
+        }
+
+        void clearPassword() {
+            Arrays.fill(password, '\0');
+        }
+
+        private void logout(LoginContext context) {
+            try {
+                context.logout();
+            } catch (LoginException e) {
+                logger.warn("Error logging out {}: {}", principal, e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
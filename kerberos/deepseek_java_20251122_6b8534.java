@@ -0,0 +1,544 @@
+// SolacePublisher.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+public class SolacePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(SolacePublisher.class);
+
+    // JCSMP rejects sendMultiple calls with more entries than this
+    static final int MAX_SEND_MULTIPLE = 50;
+    // Pause after a replay the broker refused or lost the connection on, before the spool is tried again
+    private static final long REPLAY_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int MAX_CACHED_DESTINATIONS = 10_000;
+    // Requests each publishing thread keeps for reuse; a thread with more in flight leaves the rest to the GC.
+    // Pools live as long as their thread, so they stay small.
+    private static final int MAX_POOLED_REQUESTS = 1024;
+    // Larger payload buffers are dropped on release rather than pinned by an idle pool
+    private static final int MAX_POOLED_PAYLOAD_BYTES = 64 * 1024;
+
+    private final String name;
+    private final MpscRingBuffer<PublishRequest> queue;
+    private final int maxBatchMessages;
+    private final long maxBatchBytes;
+    private final long lingerNanos;
+    private final Counter sentMessages;
+    private final Counter failedMessages;
+    private final Counter rejectedMessages;
+    private final DistributionSummary batchSizes;
+    private final Timer sendTimer;
+    private final Timer queueLatency;
+    private final Counter spooledMessages;
+    private final Counter replayedMessages;
+    private final Counter spoolRejected;
+    private final Counter deadLettered;
+    private final PublishSpool spool;
+    private final int maxReplayAttempts;
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+    // Sender thread only: queues named by replayed spool records
+    private final HashMap<String, Queue> queues = new HashMap<>();
+    private final ThreadLocal<RequestPool> pools;
+    private final ConsumerParker parker = new ConsumerParker();
+    // Held in fields so parking does not allocate a lambda each time
+    private final BooleanSupplier senderHasWork = this::senderHasWork;
+    private final BooleanSupplier queueNotEmpty;
+
+    private volatile XMLMessageProducer producer;
+    private volatile boolean connected;
+    private volatile BatchListener batchListener = BatchListener.NO_OP;
+    private volatile boolean running;
+    private Thread senderThread;
+    // Sender thread only: after the broker rejects a replayed batch, its messages go one at a time so the
+    // one being rejected can be found and dead-lettered
+    private int replayIsolating;
+    private int replayRejections;
+
+    public SolacePublisher(String name, SolaceConfig config, ClientMetrics metrics) {
+        this.name = name;
+        this.queue = new MpscRingBuffer<>(config.getPublisherQueueCapacity());
+        this.queueNotEmpty = () -> !queue.isEmpty();
+        this.maxBatchMessages = Math.max(1, Math.min(config.getPublisherBatchMaxMessages(), MAX_SEND_MULTIPLE));
+        this.maxBatchBytes = config.getPublisherBatchMaxBytes();
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(config.getPublisherLingerMicros());
+        // No bigger than everything a thread can have in flight (a full queue plus the batch being sent)
+        int poolCapacity = Math.min(MAX_POOLED_REQUESTS, queue.capacity() + maxBatchMessages);
+        this.pools = ThreadLocal.withInitial(() -> new RequestPool(poolCapacity));
+
+        this.sentMessages = metrics.counter("solace.publish.messages", "client", name, "outcome", "sent");
+        this.failedMessages = metrics.counter("solace.publish.messages", "client", name, "outcome", "failed");
+        this.rejectedMessages = metrics.counter("solace.publish.messages", "client", name, "outcome", "rejected");
+        this.batchSizes = metrics.summary("solace.publish.batch.size", "messages", "client", name);
+        this.sendTimer = metrics.timer("solace.publish.send", "client", name);
+        this.queueLatency = metrics.timer("solace.publish.queue.latency", "client", name);
+        metrics.gauge("solace.publish.queue.depth", queue, MpscRingBuffer::size, "client", name);
+
+        this.spooledMessages = metrics.counter("solace.publish.spool.messages", "client", name, "action", "spooled");
+        this.replayedMessages = metrics.counter("solace.publish.spool.messages", "client", name, "action", "replayed");
+        this.spoolRejected = metrics.counter("solace.publish.spool.messages", "client", name, "action", "rejected");
+        this.deadLettered = metrics.counter("solace.publish.spool.messages", "client", name, "action", "dead-lettered");
+        this.maxReplayAttempts = config.getSpoolMaxReplayAttempts();
+        this.spool = config.isSpoolEnabled() ? openSpool(name, config) : null;
+        if (spool != null) {
+            metrics.gauge("solace.publish.spool.bytes", spool, PublishSpool::getSpooledBytes, "client", name);
+        }
+    }
+
+    private static PublishSpool openSpool(String name, SolaceConfig config) {
+        try {
+            return new PublishSpool(Paths.get(config.getSpoolDirectory(), name),
+                config.getSpoolSegmentBytes(), config.getSpoolMaxBytes(), config.getSpoolOverflowPolicy());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open publish spool in " + config.getSpoolDirectory(), e);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        senderThread = new Thread(this::runSender, "solace-publisher-" + name);
+        senderThread.setDaemon(true);
+        senderThread.start();
+        logger.info("Solace publisher {} started (batch {} msgs / {} bytes, linger {}us)",
+            name, maxBatchMessages, maxBatchBytes, TimeUnit.NANOSECONDS.toMicros(lingerNanos));
+    }
+
+    // Never blocks; returns false when the queue is full so callers can apply their own backpressure.
+    // The remaining bytes are copied into the request's pooled array, since JCSMP attachments only take a
+    // byte[]: a direct buffer costs one copy more than an array, but no allocation once warm. The caller may
+    // reuse the buffer as soon as this returns; its position is left unchanged.
+    public boolean publish(Destination destination, ByteBuffer payload) {
+        RequestPool pool = pools.get();
+        PublishRequest request = pool.acquire();
+        int position = payload.position();
+        payload.get(request.prepare(destination, payload.remaining()));
+        payload.position(position);
+        return enqueue(pool, request);
+    }
+
+    public boolean publish(Destination destination, byte[] payload) {
+        RequestPool pool = pools.get();
+        PublishRequest request = pool.acquire();
+        System.arraycopy(payload, 0, request.prepare(destination, payload.length), 0, payload.length);
+        return enqueue(pool, request);
+    }
+
+    public boolean publish(String topic, ByteBuffer payload) {
+        return publish(topicFor(topic), payload);
+    }
+
+    public boolean publish(String topic, byte[] payload) {
+        return publish(topicFor(topic), payload);
+    }
+
+    private boolean enqueue(RequestPool pool, PublishRequest request) {
+        request.enqueuedNanos = System.nanoTime();
+        if (queue.offer(request)) {
+            parker.wake();
+            return true;
+        }
+        pool.recycle(request);
+        rejectedMessages.increment();
+        return false;
+    }
+
+    private Topic topicFor(String name) {
+        Topic topic = topics.get(name);
+        if (topic == null) {
+            topic = JCSMPFactory.onlyInstance().createTopic(name);
+            if (topics.size() < MAX_CACHED_DESTINATIONS) {
+                topics.putIfAbsent(name, topic);
+            }
+        }
+        return topic;
+    }
+
+    public void setBatchListener(BatchListener listener) {
+        this.batchListener = listener != null ? listener : BatchListener.NO_OP;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    void attach(XMLMessageProducer producer) {
+        this.producer = producer;
+        parker.wake();
+        logger.debug("Solace publisher {} attached to producer", name);
+    }
+
+    // Follows the client's connection state; anything but CONNECTED holds or spools messages
+    void setConnected(boolean connected) {
+        this.connected = connected;
+        parker.wake();
+    }
+
+    void detach() {
+        XMLMessageProducer previous = producer;
+        producer = null;
+        if (previous != null && !previous.isClosed()) {
+            previous.close();
+        }
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        detach();
+        if (senderThread != null) {
+            LockSupport.unpark(senderThread);
+            try {
+                senderThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            senderThread = null;
+        }
+
+        int dropped = queue.size();
+        if (dropped > 0) {
+            logger.warn("Solace publisher {} stopped with {} unsent messages", name, dropped);
+        }
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    private void runSender() {
+        JCSMPFactory factory = JCSMPFactory.onlyInstance();
+        JCSMPSendMultipleEntry[] entries = new JCSMPSendMultipleEntry[maxBatchMessages];
+        PublishRequest[] batch = new PublishRequest[maxBatchMessages];
+        // One record and one message per batch slot, reused by every replay
+        PublishSpool.SpooledMessage[] spooled = new PublishSpool.SpooledMessage[maxBatchMessages];
+        BytesXMLMessage[] replayMessages = new BytesXMLMessage[maxBatchMessages];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = factory.createSendMultipleEntry(null, null);
+            spooled[i] = new PublishSpool.SpooledMessage();
+        }
+
+        while (running) {
+            XMLMessageProducer target = connected ? producer : null;
+            if (target == null) {
+                // Producers keep enqueuing at full speed; the backlog moves to disk instead of filling the queue
+                if (spool == null || !spoolQueued()) {
+                    parker.park(senderHasWork);
+                }
+                continue;
+            }
+
+            // Spooled messages are older than anything queued, so they go first
+            if (spool != null && !spool.isEmpty()) {
+                replaySpool(target, factory, entries, spooled, replayMessages);
+                continue;
+            }
+
+            if (queue.isEmpty()) {
+                parker.park(senderHasWork);
+                continue;
+            }
+
+            int count = 0;
+            long bytes = 0;
+            long lingerDeadline = System.nanoTime() + lingerNanos;
+            while (count < maxBatchMessages && bytes < maxBatchBytes) {
+                PublishRequest request = queue.poll();
+                if (request == null) {
+                    if (System.nanoTime() >= lingerDeadline) {
+                        break;
+                    }
+                    parker.parkUntil(queueNotEmpty, lingerDeadline);
+                    continue;
+                }
+
+                queueLatency.record(System.nanoTime() - request.enqueuedNanos, TimeUnit.NANOSECONDS);
+                BytesXMLMessage message = request.message;
+                if (message == null) {
+                    message = request.message = factory.createMessage(BytesXMLMessage.class);
+                } else {
+                    // Direct messages may be reused once sendMultiple has returned
+                    message.reset();
+                }
+                message.writeAttachment(request.payload);
+                entries[count].setMessage(message).setDestination(request.destination);
+                batch[count] = request;
+                bytes += request.payload.length;
+                count++;
+            }
+
+            sendBatch(target, entries, batch, count, bytes);
+        }
+    }
+
+    // Whether the sender has something to do; a change to any of this wakes it
+    private boolean senderHasWork() {
+        if (!running) {
+            return true;
+        }
+        if (!connected || producer == null) {
+            return spool != null && !queue.isEmpty();
+        }
+        return !queue.isEmpty() || (spool != null && !spool.isEmpty());
+    }
+
+    private boolean spoolQueued() {
+        boolean moved = false;
+        PublishRequest request;
+        while ((request = queue.poll()) != null) {
+            spool(request);
+            request.release();
+            moved = true;
+        }
+        return moved;
+    }
+
+    private void spool(PublishRequest request) {
+        byte kind = request.destination instanceof Queue ? PublishSpool.KIND_QUEUE : PublishSpool.KIND_TOPIC;
+        if (spool.append(kind, request.destination.getName(), request.payload)) {
+            spooledMessages.increment();
+        } else {
+            spoolRejected.increment();
+        }
+    }
+
+    private void replaySpool(XMLMessageProducer target, JCSMPFactory factory, JCSMPSendMultipleEntry[] entries,
+                             PublishSpool.SpooledMessage[] spooled, BytesXMLMessage[] messages) {
+        int limit = replayIsolating > 0 ? 1 : maxBatchMessages;
+        int count = 0;
+        long bytes = 0;
+        while (count < limit && bytes < maxBatchBytes && spool.readNext(spooled[count])) {
+            PublishSpool.SpooledMessage record = spooled[count];
+            Destination destination = record.kind == PublishSpool.KIND_QUEUE
+                ? queueFor(factory, record.destinationName)
+                : topicFor(record.destinationName);
+            BytesXMLMessage message = messages[count];
+            if (message == null) {
+                message = messages[count] = factory.createMessage(BytesXMLMessage.class);
+            } else {
+                message.reset();
+            }
+            message.writeAttachment(record.payload);
+            entries[count].setMessage(message).setDestination(destination);
+            bytes += record.payload.length;
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        // No linger while replaying: the backlog is already there, so batches go out back to back
+        try {
+            target.sendMultiple(entries, 0, count, JCSMPSendMultipleFlags.NONE);
+            spool.commit();
+            replayRejections = 0;
+            if (replayIsolating > 0) {
+                replayIsolating--;
+            }
+            replayedMessages.increment(count);
+            sentMessages.increment(count);
+            notifySent(count, bytes);
+        } catch (JCSMPException e) {
+            spool.rollback();
+            if (isConnectionError(e)) {
+                // The session is going down; the client's state change stops replay until it is back
+                logger.debug("Solace publisher {} lost the connection replaying {} spooled messages: {}",
+                    name, count, e.getMessage());
+                LockSupport.parkNanos(REPLAY_BACKOFF_NANOS);
+            } else if (count > 1) {
+                replayIsolating = count;
+                replayRejections = 0;
+                logger.warn("Solace publisher {} had a replay of {} spooled messages rejected, retrying them one at a time: {}",
+                    name, count, e.getMessage());
+            } else if (++replayRejections >= maxReplayAttempts) {
+                deadLetter(spooled[0], e);
+            } else {
+                LockSupport.parkNanos(REPLAY_BACKOFF_NANOS);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                entries[i].setMessage(null).setDestination(null);
+            }
+        }
+    }
+
+    private Queue queueFor(JCSMPFactory factory, String name) {
+        Queue endpoint = queues.get(name);
+        if (endpoint == null) {
+            endpoint = factory.createQueue(name);
+            if (queues.size() < MAX_CACHED_DESTINATIONS) {
+                queues.put(name, endpoint);
+            }
+        }
+        return endpoint;
+    }
+
+    // Moves the head record out of the spool so the rest of the backlog can replay behind it
+    private void deadLetter(PublishSpool.SpooledMessage spooled, JCSMPException cause) {
+        replayRejections = 0;
+        if (replayIsolating > 0) {
+            replayIsolating--;
+        }
+        if (!spool.readNext(spooled)) {
+            return;
+        }
+        try {
+            spool.deadLetter(spooled);
+            deadLettered.increment();
+            logger.warn("Solace publisher {} moved a message for {} to the dead-letter file after {} rejections: {}",
+                name, spooled.destinationName, maxReplayAttempts, cause.getMessage());
+        } catch (IOException e) {
+            logger.error("Solace publisher {} dropped a message for {} rejected {} times; the dead-letter file could not be written",
+                name, spooled.destinationName, maxReplayAttempts, e);
+        }
+        spool.commit();
+        failedMessages.increment();
+        notifyFailed(1, cause);
+    }
+
+    // Errors that say the session or producer is gone rather than that the broker refused these messages
+    private boolean isConnectionError(JCSMPException e) {
+        return !connected || e instanceof JCSMPTransportException || e instanceof ClosedFacilityException;
+    }
+
+    private void sendBatch(XMLMessageProducer target, JCSMPSendMultipleEntry[] entries,
+                           PublishRequest[] batch, int count, long bytes) {
+        long start = System.nanoTime();
+        try {
+            target.sendMultiple(entries, 0, count, JCSMPSendMultipleFlags.NONE);
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(count);
+            sentMessages.increment(count);
+            notifySent(count, bytes);
+        } catch (JCSMPException e) {
+            if (spool != null && isConnectionError(e)) {
+                // The spool is empty whenever a queued batch is sent, so this keeps publish order
+                logger.warn("Solace publisher {} failed to send batch of {} messages, spooling for replay: {}",
+                    name, count, e.getMessage());
+                for (int i = 0; i < count; i++) {
+                    spool(batch[i]);
+                }
+            } else {
+                failedMessages.increment(count);
+                logger.warn("Solace publisher {} failed to send batch of {} messages: {}", name, count, e.getMessage());
+                notifyFailed(count, e);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                entries[i].setMessage(null).setDestination(null);
+                batch[i].release();
+                batch[i] = null;
+            }
+        }
+    }
+
+    private void notifySent(int count, long bytes) {
+        try {
+            batchListener.onBatchSent(count, bytes);
+        } catch (RuntimeException e) {
+            logger.error("Batch listener threw on success callback", e);
+        }
+    }
+
+    private void notifyFailed(int count, JCSMPException cause) {
+        try {
+            batchListener.onBatchFailed(count, cause);
+        } catch (RuntimeException e) {
+            logger.error("Batch listener threw on failure callback", e);
+        }
+    }
+
+    public interface BatchListener {
+        BatchListener NO_OP = new BatchListener() {
+            @Override
+            public void onBatchSent(int messageCount, long payloadBytes) { }
+
+            @Override
+            public void onBatchFailed(int messageCount, JCSMPException cause) { }
+        };
+
+        // Both callbacks run on the sender thread and must not block
+        void onBatchSent(int messageCount, long payloadBytes);
+
+        void onBatchFailed(int messageCount, JCSMPException cause);
+    }
+
+    // Recycled through the publishing thread's pool, so a thread publishing same-size payloads with no more
+    // than MAX_POOLED_REQUESTS in flight allocates nothing once warm
+    private static final class PublishRequest {
+        private static final byte[] EMPTY = new byte[0];
+
+        final RequestPool pool;
+        Destination destination;
+        // Exactly the payload length, because JCSMP attachments take the whole array,
+        // so a payload of a different size than this request's last one allocates a new array
+        byte[] payload = EMPTY;
+        long enqueuedNanos;
+        // Created by the sender thread on first use
+        BytesXMLMessage message;
+
+        PublishRequest(RequestPool pool) {
+            this.pool = pool;
+        }
+
+        byte[] prepare(Destination destination, int length) {
+            this.destination = destination;
+            if (payload.length != length) {
+                payload = new byte[length];
+            }
+            return payload;
+        }
+
+        // Sender thread only; hands the request back to the thread that published it
+        void release() {
+            destination = null;
+            if (payload.length > MAX_POOLED_PAYLOAD_BYTES) {
+                payload = EMPTY;
+            }
+            // Fails once the owner has more than its pool's worth in flight; the GC takes the rest
+            pool.returned.offer(this);
+        }
+    }
+
+    // One per publishing thread: a private free list, refilled from what the sender thread returns
+    private static final class RequestPool {
+        private final int capacity;
+        private final ArrayDeque<PublishRequest> free;
+        private final MpscRingBuffer<PublishRequest> returned;
+
+        RequestPool(int capacity) {
+            this.capacity = capacity;
+            // Sized up front so the free list never copies itself
+            this.free = new ArrayDeque<>(capacity);
+            this.returned = new MpscRingBuffer<>(capacity);
+        }
+
+        PublishRequest acquire() {
+            // Drained on every call so the return ring never backs up while the free list is non-empty
+            PublishRequest request;
+            while ((request = returned.poll()) != null) {
+                recycle(request);
+            }
+            request = free.pollFirst();
+            return request != null ? request : new PublishRequest(this);
+        }
+
+        void recycle(PublishRequest request) {
+            request.destination = null;
+            if (free.size() < capacity) {
+                free.addLast(request);
+            }
+        }
+    }
+}
\ No newline at end of file
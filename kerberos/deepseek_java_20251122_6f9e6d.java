@@ -4,33 +4,110 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Component
 public class ApplicationStartupRunner implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(ApplicationStartupRunner.class);
 
     private final KerberosAuthManager authManager;
-    private final SolaceClient solaceClient;
+    private final ShardedSolaceClient solaceClient;
+    private final KerberosConfig kerberosConfig;
+    private final SolaceConfig solaceConfig;
+    private final StartupTimings timings;
 
-    public ApplicationStartupRunner(KerberosAuthManager authManager, SolaceClient solaceClient) {
+    public ApplicationStartupRunner(KerberosAuthManager authManager, ShardedSolaceClient solaceClient,
+                                    KerberosConfig kerberosConfig, SolaceConfig solaceConfig,
+                                    StartupTimings timings) {
         this.authManager = authManager;
         this.solaceClient = solaceClient;
+        this.kerberosConfig = kerberosConfig;
+        this.solaceConfig = solaceConfig;
+        this.timings = timings;
     }
 
     @Override
     public void run(String... args) throws Exception {
         logger.info("Starting Kerberos-Solace application...");
-        
+        long startupStart = System.nanoTime();
+
         try {
-            // Initialize Kerberos first
-            authManager.start();
-            
-            // Then connect to Solace
-            solaceClient.connect();
-            
-            logger.info("Application started successfully");
+            if (solaceConfig.isOverlappedStartup()) {
+                runOverlapped();
+            } else {
+                runSequential();
+            }
+
+            // Then connect every Solace shard without holding the startup thread
+            long connectStart = System.nanoTime();
+            solaceClient.connectAsync().whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    logger.error("Failed to connect to Solace", failure);
+                } else {
+                    timings.record("solace-connect", connectStart);
+                    timings.record("total", startupStart);
+                    logger.info("All Solace shards connected");
+                }
+            });
+
+            logger.info("Application started successfully, Solace connection in progress");
         } catch (Exception e) {
             logger.error("Failed to start application", e);
             throw e;
         }
     }
+
+    private void runSequential() throws KerberosAuthException {
+        long phaseStart = System.nanoTime();
+        kerberosConfig.validate();
+        solaceConfig.validate();
+        timings.record("config-validation", phaseStart);
+
+        // Initialize Kerberos first
+        phaseStart = System.nanoTime();
+        authManager.start();
+        timings.record("kerberos-login", phaseStart);
+    }
+
+    // Only the authenticated connect depends on the TGT; everything else runs beside the AS exchange
+    private void runOverlapped() throws Exception {
+        ExecutorService warmup = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "startup-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            CompletableFuture<Void> validation = CompletableFuture.runAsync(() -> {
+                long phaseStart = System.nanoTime();
+                kerberosConfig.validate();
+                solaceConfig.validate();
+                timings.record("config-validation", phaseStart);
+            }, warmup);
+
+            CompletableFuture<Void> brokerWarmup = CompletableFuture.runAsync(() -> {
+                long phaseStart = System.nanoTime();
+                solaceClient.prepare();
+                timings.record("broker-warmup", phaseStart);
+            }, warmup);
+
+            long phaseStart = System.nanoTime();
+            authManager.start();
+            timings.record("kerberos-login", phaseStart);
+
+            try {
+                CompletableFuture.allOf(validation, brokerWarmup).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        } finally {
+            warmup.shutdown();
+        }
+    }
 }
\ No newline at end of file
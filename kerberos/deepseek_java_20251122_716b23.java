@@ -6,73 +6,244 @@ import org.springframework.stereotype.Component;
 import javax.security.auth.Subject;
 import javax.security.auth.callback.*;
 import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.Configuration;
 import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 @Component
 public class KerberosAuthManager {
     private static final Logger logger = LoggerFactory.getLogger(KerberosAuthManager.class);
 
+    // Krb5LoginModule rebuilds the process-wide krb5 Config from java.security.krb5.kdc when login() starts.
+    // Whoever sets that property holds the write lock until its login() has returned, and every other
+    // Kerberos login in the process holds the read lock, so no login runs against an order set for another.
+    // Service ticket requests need no lock: every order lists all of the realm's KDCs.
+    static final ReadWriteLock KDC_ORDER_LOCK = new ReentrantReadWriteLock();
+
     private final String username;
     private final char[] password;
     private final KerberosConfig config;
+    private final ClientMetrics metrics;
+    private final Configuration jaasConfig;
+    private final EndpointLatencyTracker kdcTracker;
     
-    private volatile LoginContext loginContext;
+    // Readers take a single volatile load; rotations publish the next credentials with one swap
+    private final AtomicReference<Credentials> credentials = new AtomicReference<>();
+    private final Set<Credentials> retiredCredentials = ConcurrentHashMap.newKeySet();
+    private final CredentialCacheStore credentialCache;
+    private final List<Consumer<Subject>> credentialListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<HealthCheckResult>> healthListeners = new CopyOnWriteArrayList<>();
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "kerberos-auth-scheduler");
         t.setDaemon(true);
         return t;
     });
     
-    private final AtomicBoolean isRenewing = new AtomicBoolean(false);
+    // Single-flight renewal: every concurrent caller shares the one in-progress exchange
+    private final AtomicReference<CompletableFuture<Subject>> inFlightRefresh = new AtomicReference<>();
     private final AtomicReference<HealthStatus> healthStatus = 
         new AtomicReference<>(HealthStatus.UNKNOWN);
 
-    public KerberosAuthManager(KerberosConfig config) {
+    // Recomputed only when credentials change or a TTL threshold is crossed, never per probe
+    private volatile HealthCheckResult healthSnapshot = HealthCheckResult.unhealthy("Not yet authenticated");
+    private ScheduledFuture<?> healthTransition;
+    private volatile long tgtExpiryMillis;
+    // Bumped by every successful refresh before its slot is released
+    private volatile long credentialGeneration;
+
+    public KerberosAuthManager(KerberosConfig config, ClientMetrics metrics) {
         // In production, you'd get these from secure sources like Vault
-        this.username = System.getenv("KERBEROS_USERNAME");
-        String pwd = System.getenv("KERBEROS_PASSWORD");
-        this.password = pwd != null ? pwd.toCharArray() : new char[0];
+        this(config, metrics, fromEnvironment("KERBEROS_USERNAME"), fromEnvironment("KERBEROS_PASSWORD").toCharArray(),
+            null);
+    }
+
+    // For benchmarks and harnesses running many managers in one JVM against a local KDC or a stub
+    // login module. The caller supplies the credentials; nothing is read from the environment. A null
+    // jaasConfig means start() installs the process-wide ProgrammaticJaasConfig.
+    KerberosAuthManager(KerberosConfig config, ClientMetrics metrics,
+                        String username, char[] password, Configuration jaasConfig) {
+        this.username = username;
+        this.password = password != null ? password : new char[0];
         this.config = config;
+        this.metrics = metrics;
+        this.jaasConfig = jaasConfig;
         
-        if (username == null || password.length == 0) {
-            throw new IllegalStateException("Kerberos credentials not found in environment variables");
+        if (username == null || this.password.length == 0) {
+            throw new IllegalStateException("Kerberos username and password must both be supplied");
+        }
+
+        String cachePath = config.getCredentialCachePath();
+        this.credentialCache = cachePath != null && !cachePath.trim().isEmpty()
+            ? new CredentialCacheStore(java.nio.file.Paths.get(cachePath), username, password)
+            : null;
+
+        this.kdcTracker = new EndpointLatencyTracker(config.getKdcList(), config.getKdcFailurePenaltyMs());
+
+        metrics.gauge("kerberos.tgt.time.to.expiry", this, KerberosAuthManager::secondsToExpiry);
+        for (String kdc : kdcTracker.getEndpoints()) {
+            metrics.gauge("kerberos.kdc.latency", kdcTracker, t -> t.latencyMillis(kdc), "kdc", kdc);
+        }
+    }
+
+    private static String fromEnvironment(String name) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalStateException("Kerberos credentials not found in environment variables: " + name + " is not set");
         }
+        return value;
+    }
+
+    private double secondsToExpiry() {
+        long expiry = tgtExpiryMillis;
+        return expiry > 0 ? Math.max(0, expiry - System.currentTimeMillis()) / 1000.0 : 0;
     }
 
     public void start() throws KerberosAuthException {
         try {
             logger.info("Initializing Kerberos authentication for user: {}", username);
             
-            System.setProperty("java.security.krb5.kdc", config.getKdc());
-            System.setProperty("java.security.krb5.realm", config.getRealm());
+            KDC_ORDER_LOCK.writeLock().lock();
+            try {
+                System.setProperty("java.security.krb5.kdc", String.join(" ", kdcTracker.ranked()));
+                System.setProperty("java.security.krb5.realm", config.getRealm());
+            } finally {
+                KDC_ORDER_LOCK.writeLock().unlock();
+            }
             
-            javax.security.auth.login.Configuration.setConfiguration(
-                new ProgrammaticJaasConfig(username));
+            if (jaasConfig == null) {
+                Configuration.setConfiguration(new ProgrammaticJaasConfig(username, config.isDebug()));
+            }
 
-            performLogin();
+            if (!restoreCachedCredentials()) {
+                performLogin();
+            }
             scheduleNextMaintenance();
             
             logger.info("Kerberos authentication initialized successfully");
         } catch (Exception e) {
-            healthStatus.set(HealthStatus.DOWN);
+            updateHealthSnapshot();
             throw new KerberosAuthException("Failed to initialize Kerberos authentication", e);
         }
     }
 
     public Subject getSubject() {
-        return loginContext != null ? loginContext.getSubject() : null;
+        Credentials current = credentials.get();
+        return current != null ? current.subject : null;
+    }
+
+    // Read before getSubject() and handed back to refreshAsync(long) if those credentials are rejected
+    public long getCredentialGeneration() {
+        return credentialGeneration;
+    }
+
+    // Reuses a TGT persisted by an earlier run when it outlives the refresh buffer
+    private boolean restoreCachedCredentials() {
+        if (credentialCache == null) {
+            return false;
+        }
+
+        KerberosTicket tgt = credentialCache.load();
+        if (tgt == null) {
+            return false;
+        }
+
+        long remainingMs = tgt.getEndTime().getTime() - System.currentTimeMillis();
+        if (remainingMs <= config.getRefreshBufferMs() || !tgt.isCurrent()) {
+            logger.info("Cached TGT expires too soon ({}ms left), performing full login", remainingMs);
+            return false;
+        }
+
+        Subject subject = new Subject();
+        subject.getPrincipals().add(tgt.getClient());
+        subject.getPrivateCredentials().add(tgt);
+        publish(new Credentials(null, subject));
+        logger.info("Restored cached TGT for {} valid until {}", tgt.getClient().getName(), tgt.getEndTime());
+        return true;
+    }
+
+    private void persistCredentials() {
+        if (credentialCache == null) {
+            return;
+        }
+        KerberosTicket tgt = getTGT();
+        if (tgt != null) {
+            credentialCache.save(tgt);
+        }
+    }
+
+    // Notified on the auth scheduler thread whenever a new Subject is published
+    public void addCredentialListener(Consumer<Subject> listener) {
+        credentialListeners.add(listener);
+    }
+
+    // Notified with every new snapshot, on the thread that caused the change
+    public void addHealthListener(Consumer<HealthCheckResult> listener) {
+        healthListeners.add(listener);
     }
 
     public HealthCheckResult checkHealth() {
+        return healthSnapshot;
+    }
+
+    private synchronized void updateHealthSnapshot() {
+        HealthCheckResult result = evaluateHealth();
+        scheduleHealthTransition();
+        publishHealth(result);
+    }
+
+    private void publishHealth(HealthCheckResult result) {
+        healthSnapshot = result;
+        for (Consumer<HealthCheckResult> listener : healthListeners) {
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                logger.error("Health listener failed", e);
+            }
+        }
+    }
+
+    // Wakes up exactly when the ticket enters the refresh buffer or expires
+    private void scheduleHealthTransition() {
+        if (healthTransition != null) {
+            healthTransition.cancel(false);
+            healthTransition = null;
+        }
+
+        KerberosTicket tgt = getTGT();
+        if (tgt == null) {
+            tgtExpiryMillis = 0;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expiry = tgt.getEndTime().getTime();
+        tgtExpiryMillis = expiry;
+        long warnAt = expiry - config.getRefreshBufferMs();
+        long next = now < warnAt ? warnAt : now < expiry ? expiry : -1;
+        if (next < 0) {
+            return;
+        }
+
+        try {
+            healthTransition = scheduler.schedule(this::updateHealthSnapshot, next - now, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Scheduler stopped, no further health transitions");
+        }
+    }
+
+    private HealthCheckResult evaluateHealth() {
         try {
             KerberosTicket tgt = getTGT();
             if (tgt == null) {
@@ -92,11 +263,12 @@ public class KerberosAuthManager {
             Duration buffer = Duration.ofMillis(config.getRefreshBufferMs());
             if (timeToExpiry.compareTo(buffer) <= 0) {
                 healthStatus.set(HealthStatus.UP_WITH_WARNING);
-                return HealthCheckResult.healthy("TGT expires soon in " + timeToExpiry);
+                return HealthCheckResult.healthy("TGT expires soon at " + tgt.getEndTime());
             }
 
+            // Report the deadline rather than the remaining time so the snapshot stays valid until it changes
             healthStatus.set(HealthStatus.UP);
-            return HealthCheckResult.healthy("TGT valid for " + timeToExpiry);
+            return HealthCheckResult.healthy("TGT valid until " + tgt.getEndTime());
         } catch (Exception e) {
             healthStatus.set(HealthStatus.DOWN);
             return HealthCheckResult.unhealthy("Health check failed: " + e.getMessage());
@@ -147,31 +319,199 @@ public class KerberosAuthManager {
         }
     }
 
-    public synchronized void forceRefreshOrRelogin() {
-        if (!isRenewing.compareAndSet(false, true)) {
+    public void forceRefreshOrRelogin() {
+        CompletableFuture<Subject> refresh = new CompletableFuture<>();
+        if (!inFlightRefresh.compareAndSet(null, refresh)) {
             logger.debug("Refresh already in progress, skipping");
             return;
         }
+        runRefresh(refresh);
+    }
+
+    public CompletableFuture<Subject> refreshAsync() {
+        return refreshAsync(credentialGeneration);
+    }
 
+    // A caller whose credentials were replaced after it read failedGeneration gets the current Subject
+    // at once, so failures that land just after a refresh finished do not start another login
+    public CompletableFuture<Subject> refreshAsync(long failedGeneration) {
+        while (true) {
+            CompletableFuture<Subject> current = inFlightRefresh.get();
+            if (current != null) {
+                return current;
+            }
+            if (credentialGeneration != failedGeneration) {
+                return CompletableFuture.completedFuture(getSubject());
+            }
+
+            CompletableFuture<Subject> refresh = new CompletableFuture<>();
+            if (inFlightRefresh.compareAndSet(null, refresh)) {
+                // A refresh may have finished between the generation check and taking the slot
+                if (credentialGeneration != failedGeneration) {
+                    inFlightRefresh.compareAndSet(refresh, null);
+                    refresh.complete(getSubject());
+                    return refresh;
+                }
+                try {
+                    scheduler.execute(() -> runRefresh(refresh));
+                } catch (RejectedExecutionException e) {
+                    inFlightRefresh.compareAndSet(refresh, null);
+                    refresh.completeExceptionally(
+                        new KerberosAuthException("Kerberos scheduler is shut down", e));
+                }
+                return refresh;
+            }
+        }
+    }
+
+    public Subject awaitRefresh() throws KerberosAuthException {
         try {
-            logger.info("Executing credential maintenance...");
-            boolean renewed = attemptTicketRefresh();
+            return refreshAsync().get(config.getRefreshAwaitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof KerberosAuthException) {
+                throw (KerberosAuthException) cause;
+            }
+            throw new KerberosAuthException("Kerberos refresh failed", cause);
+        } catch (TimeoutException e) {
+            throw new KerberosAuthException(
+                "Timed out after " + config.getRefreshAwaitTimeoutMs() + "ms waiting for Kerberos refresh", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KerberosAuthException("Interrupted while waiting for Kerberos refresh", e);
+        }
+    }
 
-            if (!renewed) {
-                logger.info("Refresh failed/not supported. Performing full re-login...");
+    private void runRefresh(CompletableFuture<Subject> refresh) {
+        Exception failure = null;
+        long start = System.nanoTime();
+        String type = "relogin";
+        try {
+            logger.info("Executing credential maintenance...");
+            if (config.isDoubleBufferedRotation()) {
+                // Renewing in place would mutate the ticket inside the published Subject,
+                // so rotation always builds a fresh context and swaps it in
+                logger.info("Rotating Kerberos credentials...");
+                type = "rotate";
                 performLogin();
-            } else {
+            } else if (attemptTicketRefresh()) {
                 logger.info("Ticket successfully renewed");
+                type = "renew";
+                persistCredentials();
+            } else {
+                logger.info("Refresh failed/not supported. Performing full re-login...");
+                performLogin();
             }
+            credentialGeneration++;
         } catch (Exception e) {
             logger.error("Critical Kerberos error during maintenance", e);
             healthStatus.set(HealthStatus.DOWN);
+            failure = e;
+        } finally {
+            // Release the slot before waking waiters so a failed renewal can be retried at once
+            inFlightRefresh.compareAndSet(refresh, null);
+            metrics.timer("kerberos.refresh", "type", type, "outcome", failure == null ? "success" : "failure")
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        // Renewal in place does not publish new credentials, and a failure leaves the old ticket reporting
+        updateHealthSnapshot();
+
+        if (failure == null) {
+            refresh.complete(getSubject());
+        } else {
+            refresh.completeExceptionally(
+                new KerberosAuthException("Kerberos credential maintenance failed", failure));
+        }
+    }
+
+    private void performLogin() throws LoginException, KerberosAuthException {
+        Credentials next = timedLogin();
+
+        // Verify the new TGT before anyone can observe it
+        try {
+            validateTicket(getTGT(next.subject));
+        } catch (KerberosAuthException e) {
+            next.release();
+            throw e;
+        }
+
+        publish(next);
+        logger.info("Kerberos login successful. New TGT acquired.");
+        persistCredentials();
+    }
+
+    // Covers the AS exchange alone, failed-over attempts included, so KDC latency can be told apart from
+    // validation, credential listeners and the credential cache as well as from the broker handshake
+    private Credentials timedLogin() throws LoginException {
+        KerberosLoginEvent event = new KerberosLoginEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            Credentials next = failoverLogin();
+            outcome = "success";
+            return next;
+        } catch (LoginException | RuntimeException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            metrics.timer("kerberos.login", "outcome", outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (event.shouldCommit()) {
+                event.principal = username;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    // Tries the fastest healthy KDC first and moves on to the next as soon as an attempt fails, for any
+    // reason, until every KDC has been tried. Attempts run one at a time: the KDC order is process-wide,
+    // so a second attempt racing the first would redirect its remaining round trips.
+    private Credentials failoverLogin() throws LoginException {
+        List<String> ranked = kdcTracker.ranked();
+        LoginException failure = null;
+        for (int index = 0; index < ranked.size(); index++) {
+            try {
+                return loginVia(ranked, index);
+            } catch (LoginException | RuntimeException e) {
+                failure = e instanceof LoginException ? (LoginException) e : loginFailure(e);
+                if (index + 1 < ranked.size()) {
+                    logger.warn("Kerberos login via KDC {} failed, trying {}: {}",
+                        ranked.get(index), ranked.get(index + 1), e.getMessage());
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private Credentials loginVia(List<String> ranked, int index) throws LoginException {
+        String kdc = ranked.get(index);
+        KDC_ORDER_LOCK.writeLock().lock();
+        try {
+            // Timed from here, so waiting behind other logins does not count against the KDC
+            long start = System.nanoTime();
+            try {
+                LoginContext newContext = newLoginContext(ranked, index);
+                newContext.login();
+                kdcTracker.recordSuccess(kdc, System.nanoTime() - start);
+                return new Credentials(newContext, newContext.getSubject());
+            } catch (LoginException | RuntimeException e) {
+                kdcTracker.recordFailure(kdc);
+                throw e;
+            }
         } finally {
-            isRenewing.set(false);
+            KDC_ORDER_LOCK.writeLock().unlock();
         }
     }
 
-    private void performLogin() throws LoginException {
+    private static LoginException loginFailure(Throwable cause) {
+        LoginException e = new LoginException("Kerberos login failed: " + cause);
+        e.initCause(cause);
+        return e;
+    }
+
+    private LoginContext newLoginContext(List<String> ranked, int index) throws LoginException {
         CallbackHandler cbHandler = callbacks -> {
             for (Callback cb : callbacks) {
                 if (cb instanceof PasswordCallback) {
@@ -182,13 +522,60 @@ public class KerberosAuthManager {
             }
         };
 
-        LoginContext newContext = new LoginContext("StandardJaasConfig", cbHandler);
-        newContext.login();
-        this.loginContext = newContext;
-        logger.info("Kerberos login successful. New TGT acquired.");
+        // The JDK has no per-login KDC option: Krb5LoginModule re-reads java.security.krb5.kdc when it
+        // refreshes its config at the start of login(), so each attempt lists its own target first
+        // and the rest in rank order, which is also the order the JDK falls back through.
+        // Callers hold KDC_ORDER_LOCK for writing until login() returns. The Config rebuilt from the property
+        // stays in place afterwards, so SPNEGO and GSS contexts see the latest order, always the same set of
+        // this realm's KDCs, with everything else re-read unchanged from the same krb5.conf.
+        List<String> order = new ArrayList<>(ranked.size());
+        order.add(ranked.get(index));
+        for (int i = 0; i < ranked.size(); i++) {
+            if (i != index) {
+                order.add(ranked.get(i));
+            }
+        }
+        System.setProperty("java.security.krb5.kdc", String.join(" ", order));
+
+        return jaasConfig != null
+            ? new LoginContext("StandardJaasConfig", null, cbHandler, jaasConfig)
+            : new LoginContext("StandardJaasConfig", cbHandler);
+    }
+
+    private void publish(Credentials next) {
+        Credentials previous = credentials.getAndSet(next);
+        if (previous != null) {
+            retire(previous);
+        }
+
+        for (Consumer<Subject> listener : credentialListeners) {
+            try {
+                listener.accept(next.subject);
+            } catch (RuntimeException e) {
+                logger.error("Credential listener failed", e);
+            }
+        }
+        updateHealthSnapshot();
+    }
+
+    private void retire(Credentials previous) {
+        // Callers may still be inside Subject.doAs with the old credentials
+        retiredCredentials.add(previous);
+        try {
+            scheduler.schedule(() -> {
+                if (retiredCredentials.remove(previous)) {
+                    previous.release();
+                }
+            }, config.getRotationGracePeriodMs(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Scheduler stopped, retired credentials will be released on shutdown");
+        }
     }
 
     private boolean attemptTicketRefresh() {
+        KerberosRefreshEvent event = new KerberosRefreshEvent();
+        event.begin();
+        String outcome = "failure";
         try {
             KerberosTicket tgt = getTGT();
             if (tgt != null && tgt.isRenewable()) {
@@ -196,14 +583,23 @@ public class KerberosAuthManager {
                 validateTicket(tgt);
                 tgt.refresh();
                 logger.info("Ticket renewed via Kerberos API");
+                outcome = "renewed";
                 return true;
             } else {
                 logger.info("Ticket is not renewable, re-login required");
+                outcome = "not-renewable";
                 return false;
             }
         } catch (Exception e) {
             logger.warn("Ticket refresh attempt failed: {}", e.getMessage());
+            event.error = e.getMessage();
             return false;
+        } finally {
+            if (event.shouldCommit()) {
+                event.principal = username;
+                event.outcome = outcome;
+                event.commit();
+            }
         }
     }
 
@@ -225,11 +621,15 @@ public class KerberosAuthManager {
     }
 
     private KerberosTicket getTGT() {
-        if (loginContext == null || loginContext.getSubject() == null) {
+        return getTGT(getSubject());
+    }
+
+    private KerberosTicket getTGT(Subject subject) {
+        if (subject == null) {
             return null;
         }
 
-        Set<KerberosTicket> tickets = loginContext.getSubject().getPrivateCredentials(KerberosTicket.class);
+        Set<KerberosTicket> tickets = subject.getPrivateCredentials(KerberosTicket.class);
         for (KerberosTicket ticket : tickets) {
             if (ticket.getServer().getName().startsWith("krbtgt/")) {
                 return ticket;
@@ -251,13 +651,15 @@ public class KerberosAuthManager {
             Thread.currentThread().interrupt();
         }
 
-        if (loginContext != null) {
-            try {
-                loginContext.logout();
-                logger.info("Kerberos logout successful");
-            } catch (LoginException e) {
-                logger.error("Error during Kerberos logout", e);
-            }
+        for (Credentials retired : retiredCredentials) {
+            retired.release();
+        }
+        retiredCredentials.clear();
+
+        Credentials current = credentials.getAndSet(null);
+        if (current != null) {
+            current.release();
+            logger.info("Kerberos logout successful");
         }
 
         // Clear sensitive data
@@ -266,9 +668,42 @@ public class KerberosAuthManager {
         }
         
         healthStatus.set(HealthStatus.DOWN);
+        synchronized (this) {
+            if (healthTransition != null) {
+                healthTransition.cancel(false);
+                healthTransition = null;
+            }
+            publishHealth(HealthCheckResult.unhealthy("Kerberos authentication shut down"));
+        }
         logger.info("KerberosAuthManager shutdown complete");
     }
 
+    // A published Subject plus the LoginContext that produced it (absent when restored from cache)
+    private static final class Credentials {
+        final LoginContext loginContext;
+        final Subject subject;
+
+        Credentials(LoginContext loginContext, Subject subject) {
+            this.loginContext = loginContext;
+            this.subject = subject;
+        }
+
+        void release() {
+            try {
+                if (loginContext != null) {
+                    loginContext.logout();
+                } else {
+                    for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+                        ticket.destroy();
+                    }
+                }
+                logger.debug("Kerberos credentials released");
+            } catch (LoginException | javax.security.auth.DestroyFailedException e) {
+                logger.warn("Error releasing Kerberos credentials: {}", e.getMessage());
+            }
+        }
+    }
+
     // Health status enum
     public enum HealthStatus {
         UP, UP_WITH_WARNING, DOWN, UNKNOWN
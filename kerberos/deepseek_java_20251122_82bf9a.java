@@ -0,0 +1,20 @@
+// KerberosLoginEvent.java
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("kerberos.Login")
+@Label("Kerberos Login")
+@Category({"Kerberos"})
+@Description("AS exchange performed through a JAAS LoginContext")
+public class KerberosLoginEvent extends jdk.jfr.Event {
+    @Label("Principal")
+    String principal;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Error")
+    String error;
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+// ReconnectStormHarness.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drops many clients at once against an in-process KDC and broker stand-in and measures recovery.
+// Usage: java ReconnectStormHarness [--clients=100] [--managers=4] [--outage-ms=2000]
+//                                   [--kdc-latency-ms=20] [--max-connect-retries=8] [--rounds=1]
+public class ReconnectStormHarness {
+    private static final HarnessSupport.StubKdc KDC = HarnessSupport.KDC;
+
+    private final HarnessSupport.Options options;
+    private final FakeBroker broker = new FakeBroker();
+    private final List<KerberosAuthManager> managers = new ArrayList<>();
+    private final List<SolaceClient> clients = new ArrayList<>();
+    private volatile Round round;
+
+    ReconnectStormHarness(HarnessSupport.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ReconnectStormHarness harness = new ReconnectStormHarness(new HarnessSupport.Options(args));
+        try {
+            harness.setUp();
+            harness.run();
+        } finally {
+            harness.tearDown();
+        }
+    }
+
+    void setUp() throws Exception {
+        int managerCount = (int) options.get("managers", 4);
+        int clientCount = (int) options.get("clients", 100);
+        KDC.reset(options.get("kdc-latency-ms", 20));
+
+        ClientMetrics metrics = new ClientMetrics(new SimpleMeterRegistry());
+        KerberosConfig kerberosConfig = HarnessSupport.stubKerberosConfig();
+        kerberosConfig.setRetryDelayMs(500);
+        kerberosConfig.setRotationGracePeriodMs(1000);
+        kerberosConfig.setRefreshAwaitTimeoutMs(10000);
+
+        for (int i = 0; i < managerCount; i++) {
+            KerberosAuthManager manager = new KerberosAuthManager(kerberosConfig, metrics,
+                "harness-" + i, "secret".toCharArray(), HarnessSupport.stubJaasConfig());
+            manager.start();
+            managers.add(manager);
+        }
+
+        SolaceConfig solaceConfig = new SolaceConfig();
+        solaceConfig.setHost("tcp://harness-broker:55555");
+        solaceConfig.setAuthRetryBaseDelayMs(50);
+        solaceConfig.setAuthRetryMaxDelayMs(1000);
+        solaceConfig.setReconnectBaseDelayMs(100);
+        solaceConfig.setReconnectMaxDelayMs(2000);
+        solaceConfig.setMaxConnectRetries((int) options.get("max-connect-retries", 8));
+        solaceConfig.setPublisherQueueCapacity(1024);
+
+        for (int i = 0; i < clientCount; i++) {
+            KerberosAuthManager manager = managers.get(i % managerCount);
+            SolaceClient client = new SolaceClient(manager, solaceConfig, metrics, "harness-" + i,
+                properties -> new StormSession(manager).newProxy());
+            int index = i;
+            client.addStateListener((previous, current) -> {
+                Round active = round;
+                if (active != null && current == ConnectionState.CONNECTED) {
+                    active.recovered(index);
+                }
+            });
+            clients.add(client);
+        }
+
+        reconnectAll();
+        System.out.printf("Harness ready: %d clients on %d Kerberos managers%n", clientCount, managerCount);
+    }
+
+    void run() throws Exception {
+        long outageMs = options.get("outage-ms", 2000);
+        int rounds = (int) options.get("rounds", 1);
+
+        System.out.printf("%-22s %8s %8s %8s %8s %8s %8s %10s %10s%n",
+            "scenario", "p50ms", "p90ms", "p99ms", "p999ms", "maxms", "failed", "kdcReqs", "handshakes");
+        for (int r = 0; r < rounds; r++) {
+            scenario("broker-outage", outageMs,
+                () -> broker.down = true,
+                () -> broker.down = false);
+
+            scenario("gss-reject", outageMs,
+                () -> broker.rejectGss = true,
+                () -> broker.rejectGss = false);
+
+            long normalLatency = KDC.latencyMs;
+            scenario("slow-kdc-gss-reject", outageMs,
+                () -> {
+                    KDC.latencyMs = Math.max(normalLatency, 2000);
+                    broker.rejectGss = true;
+                },
+                () -> {
+                    broker.rejectGss = false;
+                    KDC.latencyMs = normalLatency;
+                });
+
+            scenario("ticket-expiry", outageMs,
+                this::expireTickets,
+                () -> {
+                    KDC.ticketLifetimeMs = HarnessSupport.DEFAULT_TICKET_LIFETIME_MS;
+                    KDC.unavailable = false;
+                });
+        }
+    }
+
+    // Managers pick up short tickets, then lose the KDC and let them lapse before the storm
+    private void expireTickets() {
+        KDC.ticketLifetimeMs = 3000;
+        for (KerberosAuthManager manager : managers) {
+            manager.forceRefreshOrRelogin();
+        }
+        KDC.unavailable = true;
+        HarnessSupport.sleep(KDC.ticketLifetimeMs + 500);
+    }
+
+    private void scenario(String name, long faultMs, Runnable injectFault, Runnable clearFault) throws Exception {
+        reconnectAll();
+        injectFault.run();
+
+        long kdcBefore = KDC.asRequests.get();
+        long handshakesBefore = broker.handshakes.get();
+        Round current = new Round(clients.size());
+        round = current;
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            timer.schedule(clearFault, faultMs, TimeUnit.MILLISECONDS);
+
+            // Every session drops at the same instant, which is what makes it a storm
+            for (int i = 0; i < clients.size(); i++) {
+                SolaceClient client = clients.get(i);
+                HarnessSupport.FakeSession session = HarnessSupport.FakeSession.of(client.currentSession());
+                if (session != null) {
+                    session.drop("Harness injected DOWN_ERROR");
+                }
+                int index = i;
+                client.connectAsync().whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        current.failed(index);
+                    }
+                });
+            }
+
+            if (!current.done.await(faultMs + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS)) {
+                System.out.printf("%s: %d clients did not settle in time%n", name, current.done.getCount());
+            }
+        } finally {
+            round = null;
+            timer.shutdownNow();
+            clearFault.run();
+        }
+
+        HarnessSupport.LatencyRecorder recovery = current.recovery;
+        System.out.printf("%-22s %8.1f %8.1f %8.1f %8.1f %8.1f %8d %10d %10d%n", name,
+            recovery.percentileMillis(50), recovery.percentileMillis(90), recovery.percentileMillis(99),
+            recovery.percentileMillis(99.9), recovery.percentileMillis(100), current.failures.get(),
+            KDC.asRequests.get() - kdcBefore, broker.handshakes.get() - handshakesBefore);
+    }
+
+    private void reconnectAll() throws Exception {
+        CompletableFuture<?>[] attempts = new CompletableFuture<?>[clients.size()];
+        for (int i = 0; i < clients.size(); i++) {
+            attempts[i] = clients.get(i).connectAsync();
+        }
+        CompletableFuture.allOf(attempts).get(5, TimeUnit.MINUTES);
+    }
+
+    void tearDown() {
+        for (SolaceClient client : clients) {
+            client.shutdown();
+        }
+        for (KerberosAuthManager manager : managers) {
+            manager.shutdown();
+        }
+    }
+
+    private final class StormSession extends HarnessSupport.FakeSession {
+        private final KerberosAuthManager manager;
+
+        StormSession(KerberosAuthManager manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        void connect() throws JCSMPException {
+            broker.handshake(manager.getSubject());
+        }
+    }
+
+    private static final class FakeBroker {
+        final AtomicLong handshakes = new AtomicLong();
+        volatile boolean down;
+        volatile boolean rejectGss;
+
+        void handshake(Subject subject) throws JCSMPException {
+            handshakes.incrementAndGet();
+            if (down) {
+                throw new JCSMPException("Connection refused by harness broker");
+            }
+            if (rejectGss) {
+                throw new JCSMPException("GSS authentication rejected by harness broker");
+            }
+            KerberosTicket tgt = HarnessSupport.findTGT(subject);
+            if (tgt == null || !tgt.isCurrent()) {
+                throw new JCSMPException("Authentication failed: 401 no current TGT");
+            }
+        }
+    }
+
+    private static final class Round {
+        final long startNanos = System.nanoTime();
+        final HarnessSupport.LatencyRecorder recovery = new HarnessSupport.LatencyRecorder();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicBoolean[] pending;
+        final CountDownLatch done;
+
+        Round(int clients) {
+            pending = new AtomicBoolean[clients];
+            for (int i = 0; i < clients; i++) {
+                pending[i] = new AtomicBoolean(true);
+            }
+            done = new CountDownLatch(clients);
+        }
+
+        void recovered(int client) {
+            if (pending[client].compareAndSet(true, false)) {
+                recovery.record(System.nanoTime() - startNanos);
+                done.countDown();
+            }
+        }
+
+        // Retry budget exhausted, or the Kerberos refresh behind an auth retry failed
+        void failed(int client) {
+            if (pending[client].compareAndSet(true, false)) {
+                failures.incrementAndGet();
+                done.countDown();
+            }
+        }
+    }
+}
\ No newline at end of file
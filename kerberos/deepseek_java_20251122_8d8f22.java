@@ -0,0 +1,20 @@
+// KerberosRefreshEvent.java
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("kerberos.TicketRefresh")
+@Label("Kerberos Ticket Refresh")
+@Category({"Kerberos"})
+@Description("In-place renewal of the TGT")
+public class KerberosRefreshEvent extends jdk.jfr.Event {
+    @Label("Principal")
+    String principal;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Error")
+    String error;
+}
\ No newline at end of file
@@ -1,4 +1,23 @@
 // ConnectionState.java
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum ConnectionState {
-    DISCONNECTED, CONNECTING, CONNECTED, RECONNECTING, FAILED
+    DISCONNECTED, CONNECTING, CONNECTED, RECONNECTING, FAILED;
+
+    private static final Map<ConnectionState, Set<ConnectionState>> TRANSITIONS = new EnumMap<>(ConnectionState.class);
+
+    static {
+        TRANSITIONS.put(DISCONNECTED, EnumSet.of(CONNECTING));
+        TRANSITIONS.put(CONNECTING, EnumSet.of(CONNECTED, FAILED, DISCONNECTED));
+        TRANSITIONS.put(CONNECTED, EnumSet.of(RECONNECTING, FAILED, DISCONNECTED));
+        TRANSITIONS.put(RECONNECTING, EnumSet.of(CONNECTED, FAILED, DISCONNECTED));
+        TRANSITIONS.put(FAILED, EnumSet.of(CONNECTING, DISCONNECTED));
+    }
+
+    public boolean canTransitionTo(ConnectionState next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
 }
\ No newline at end of file
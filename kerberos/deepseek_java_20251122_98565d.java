@@ -2,18 +2,72 @@
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "solace")
 public class SolaceConfig {
     private String host = "tcps://solace-broker:55443";
+    private List<String> hosts = new ArrayList<>();
+    private double connectHedgePercentile = 95.0;
+    private long connectHedgeMinDelayMs = 50;
+    private long connectHedgeMaxDelayMs = 2000;
+    private long hostFailurePenaltyMs = 30000;
+    private boolean standbyEnabled = false;
     private String vpnName = "default";
     private int connectionTimeoutMs = 10000;
     private int maxReconnectRetries = 3;
+    private long authRetryBaseDelayMs = 100;
+    private long authRetryMaxDelayMs = 2000;
+    private int maxConnectRetries = 5;
+    private long reconnectBaseDelayMs = 500;
+    private long reconnectMaxDelayMs = 30000;
+    private int shardCount = 1;
+    private boolean overlappedStartup = false;
+    private int publisherQueueCapacity = 65536;
+    private int publisherBatchMaxMessages = 50;
+    private long publisherBatchMaxBytes = 1024 * 1024;
+    private long publisherLingerMicros = 1000;
+    private int consumerWorkerThreads = 0;
+    private int consumerPartitionCapacity = 8192;
+    private int consumerAckBatchSize = 64;
+    private int consumerFlowHighWatermarkPercent = 75;
+    private int consumerFlowLowWatermarkPercent = 25;
+    private long consumerDirectOverflowWaitMicros = 0;
+    private boolean spoolEnabled = false;
+    private String spoolDirectory = "spool";
+    private int spoolSegmentBytes = 64 * 1024 * 1024;
+    private long spoolMaxBytes = 1024L * 1024 * 1024;
+    private PublishSpool.OverflowPolicy spoolOverflowPolicy = PublishSpool.OverflowPolicy.REJECT;
+    private int spoolMaxReplayAttempts = 5;
+    private int guaranteedWindowSize = 1024;
+    private long requestTimeoutMs = 5000;
+    private int requestMaxInFlight = 65536;
 
     // Getters and setters
     public String getHost() { return host; }
     public void setHost(String host) { this.host = host; }
     
+    public List<String> getHosts() { return hosts; }
+    public void setHosts(List<String> hosts) { this.hosts = hosts; }
+    
+    public double getConnectHedgePercentile() { return connectHedgePercentile; }
+    public void setConnectHedgePercentile(double connectHedgePercentile) { this.connectHedgePercentile = connectHedgePercentile; }
+    
+    public long getConnectHedgeMinDelayMs() { return connectHedgeMinDelayMs; }
+    public void setConnectHedgeMinDelayMs(long connectHedgeMinDelayMs) { this.connectHedgeMinDelayMs = connectHedgeMinDelayMs; }
+    
+    public long getConnectHedgeMaxDelayMs() { return connectHedgeMaxDelayMs; }
+    public void setConnectHedgeMaxDelayMs(long connectHedgeMaxDelayMs) { this.connectHedgeMaxDelayMs = connectHedgeMaxDelayMs; }
+    
+    public long getHostFailurePenaltyMs() { return hostFailurePenaltyMs; }
+    public void setHostFailurePenaltyMs(long hostFailurePenaltyMs) { this.hostFailurePenaltyMs = hostFailurePenaltyMs; }
+    
+    public boolean isStandbyEnabled() { return standbyEnabled; }
+    public void setStandbyEnabled(boolean standbyEnabled) { this.standbyEnabled = standbyEnabled; }
+    
     public String getVpnName() { return vpnName; }
     public void setVpnName(String vpnName) { this.vpnName = vpnName; }
     
@@ -22,4 +76,136 @@ public class SolaceConfig {
     
     public int getMaxReconnectRetries() { return maxReconnectRetries; }
     public void setMaxReconnectRetries(int maxReconnectRetries) { this.maxReconnectRetries = maxReconnectRetries; }
+    
+    public long getAuthRetryBaseDelayMs() { return authRetryBaseDelayMs; }
+    public void setAuthRetryBaseDelayMs(long authRetryBaseDelayMs) { this.authRetryBaseDelayMs = authRetryBaseDelayMs; }
+    
+    public long getAuthRetryMaxDelayMs() { return authRetryMaxDelayMs; }
+    public void setAuthRetryMaxDelayMs(long authRetryMaxDelayMs) { this.authRetryMaxDelayMs = authRetryMaxDelayMs; }
+    
+    public int getMaxConnectRetries() { return maxConnectRetries; }
+    public void setMaxConnectRetries(int maxConnectRetries) { this.maxConnectRetries = maxConnectRetries; }
+    
+    public long getReconnectBaseDelayMs() { return reconnectBaseDelayMs; }
+    public void setReconnectBaseDelayMs(long reconnectBaseDelayMs) { this.reconnectBaseDelayMs = reconnectBaseDelayMs; }
+    
+    public long getReconnectMaxDelayMs() { return reconnectMaxDelayMs; }
+    public void setReconnectMaxDelayMs(long reconnectMaxDelayMs) { this.reconnectMaxDelayMs = reconnectMaxDelayMs; }
+    
+    public int getShardCount() { return shardCount; }
+    public void setShardCount(int shardCount) { this.shardCount = shardCount; }
+    
+    public boolean isOverlappedStartup() { return overlappedStartup; }
+    public void setOverlappedStartup(boolean overlappedStartup) { this.overlappedStartup = overlappedStartup; }
+    
+    public int getPublisherQueueCapacity() { return publisherQueueCapacity; }
+    public void setPublisherQueueCapacity(int publisherQueueCapacity) { this.publisherQueueCapacity = publisherQueueCapacity; }
+    
+    public int getPublisherBatchMaxMessages() { return publisherBatchMaxMessages; }
+    public void setPublisherBatchMaxMessages(int publisherBatchMaxMessages) { this.publisherBatchMaxMessages = publisherBatchMaxMessages; }
+    
+    public long getPublisherBatchMaxBytes() { return publisherBatchMaxBytes; }
+    public void setPublisherBatchMaxBytes(long publisherBatchMaxBytes) { this.publisherBatchMaxBytes = publisherBatchMaxBytes; }
+    
+    public long getPublisherLingerMicros() { return publisherLingerMicros; }
+    public void setPublisherLingerMicros(long publisherLingerMicros) { this.publisherLingerMicros = publisherLingerMicros; }
+    
+    public int getConsumerWorkerThreads() { return consumerWorkerThreads; }
+    public void setConsumerWorkerThreads(int consumerWorkerThreads) { this.consumerWorkerThreads = consumerWorkerThreads; }
+    
+    public int getConsumerPartitionCapacity() { return consumerPartitionCapacity; }
+    public void setConsumerPartitionCapacity(int consumerPartitionCapacity) { this.consumerPartitionCapacity = consumerPartitionCapacity; }
+    
+    public int getConsumerAckBatchSize() { return consumerAckBatchSize; }
+    public void setConsumerAckBatchSize(int consumerAckBatchSize) { this.consumerAckBatchSize = consumerAckBatchSize; }
+    
+    public int getConsumerFlowHighWatermarkPercent() { return consumerFlowHighWatermarkPercent; }
+    public void setConsumerFlowHighWatermarkPercent(int consumerFlowHighWatermarkPercent) { this.consumerFlowHighWatermarkPercent = consumerFlowHighWatermarkPercent; }
+    
+    public int getConsumerFlowLowWatermarkPercent() { return consumerFlowLowWatermarkPercent; }
+    public void setConsumerFlowLowWatermarkPercent(int consumerFlowLowWatermarkPercent) { this.consumerFlowLowWatermarkPercent = consumerFlowLowWatermarkPercent; }
+
+    public long getConsumerDirectOverflowWaitMicros() { return consumerDirectOverflowWaitMicros; }
+    public void setConsumerDirectOverflowWaitMicros(long consumerDirectOverflowWaitMicros) { this.consumerDirectOverflowWaitMicros = consumerDirectOverflowWaitMicros; }
+    
+    public boolean isSpoolEnabled() { return spoolEnabled; }
+    public void setSpoolEnabled(boolean spoolEnabled) { this.spoolEnabled = spoolEnabled; }
+    
+    public String getSpoolDirectory() { return spoolDirectory; }
+    public void setSpoolDirectory(String spoolDirectory) { this.spoolDirectory = spoolDirectory; }
+    
+    public int getSpoolSegmentBytes() { return spoolSegmentBytes; }
+    public void setSpoolSegmentBytes(int spoolSegmentBytes) { this.spoolSegmentBytes = spoolSegmentBytes; }
+    
+    public long getSpoolMaxBytes() { return spoolMaxBytes; }
+    public void setSpoolMaxBytes(long spoolMaxBytes) { this.spoolMaxBytes = spoolMaxBytes; }
+    
+    public PublishSpool.OverflowPolicy getSpoolOverflowPolicy() { return spoolOverflowPolicy; }
+    public void setSpoolOverflowPolicy(PublishSpool.OverflowPolicy spoolOverflowPolicy) { this.spoolOverflowPolicy = spoolOverflowPolicy; }
+
+    public int getSpoolMaxReplayAttempts() { return spoolMaxReplayAttempts; }
+    public void setSpoolMaxReplayAttempts(int spoolMaxReplayAttempts) { this.spoolMaxReplayAttempts = spoolMaxReplayAttempts; }
+    
+    public int getGuaranteedWindowSize() { return guaranteedWindowSize; }
+    public void setGuaranteedWindowSize(int guaranteedWindowSize) { this.guaranteedWindowSize = guaranteedWindowSize; }
+    
+    public long getRequestTimeoutMs() { return requestTimeoutMs; }
+    public void setRequestTimeoutMs(long requestTimeoutMs) { this.requestTimeoutMs = requestTimeoutMs; }
+    
+    public int getRequestMaxInFlight() { return requestMaxInFlight; }
+    public void setRequestMaxInFlight(int requestMaxInFlight) { this.requestMaxInFlight = requestMaxInFlight; }
+
+    // solace.hosts when set, otherwise solace.host, which may itself be a comma-separated list
+    public List<String> getHostList() {
+        if (hosts != null && !hosts.isEmpty()) {
+            return hosts;
+        }
+        if (host == null || host.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(host.trim().split("\\s*,\\s*"));
+    }
+
+    public void validate() {
+        if (getHostList().isEmpty()) {
+            throw new IllegalStateException("solace.host or solace.hosts must be set");
+        }
+        if (connectHedgePercentile <= 0 || connectHedgePercentile > 100 || connectHedgeMinDelayMs > connectHedgeMaxDelayMs) {
+            throw new IllegalStateException(
+                "solace.connect-hedge-percentile must be in (0, 100] and the hedge min delay no larger than the max");
+        }
+        if (vpnName == null || vpnName.trim().isEmpty()) {
+            throw new IllegalStateException("solace.vpn-name must be set");
+        }
+        if (connectionTimeoutMs <= 0) {
+            throw new IllegalStateException("solace.connection-timeout-ms must be positive");
+        }
+        if (shardCount < 1) {
+            throw new IllegalStateException("solace.shard-count must be at least 1");
+        }
+        if (publisherQueueCapacity < 2 || consumerPartitionCapacity < 2) {
+            throw new IllegalStateException("Publisher and consumer queue capacities must be at least 2");
+        }
+        if (consumerFlowLowWatermarkPercent < 0 || consumerFlowLowWatermarkPercent >= consumerFlowHighWatermarkPercent
+                || consumerFlowHighWatermarkPercent > 100) {
+            throw new IllegalStateException(
+                "Consumer flow watermarks must satisfy 0 <= low < high <= 100 percent");
+        }
+        if (consumerDirectOverflowWaitMicros < 0) {
+            throw new IllegalStateException("solace.consumer-direct-overflow-wait-micros must not be negative");
+        }
+        if (guaranteedWindowSize < 2) {
+            throw new IllegalStateException("solace.guaranteed-window-size must be at least 2");
+        }
+        if (requestTimeoutMs <= 0 || requestMaxInFlight < 1) {
+            throw new IllegalStateException("solace.request-timeout-ms and solace.request-max-in-flight must be positive");
+        }
+        if (spoolEnabled && (spoolSegmentBytes < 4096 || spoolMaxBytes < spoolSegmentBytes)) {
+            throw new IllegalStateException(
+                "solace.spool-segment-bytes must be at least 4096 and no larger than solace.spool-max-bytes");
+        }
+        if (spoolEnabled && spoolMaxReplayAttempts < 1) {
+            throw new IllegalStateException("solace.spool-max-replay-attempts must be at least 1");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+// DirectMessageRouter.java
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.Destination;
+import com.solacesystems.jcsmp.JCSMPException;
+import com.solacesystems.jcsmp.XMLMessageListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// A session has a single direct-message consumer; this fans its messages out by subscription
+public class DirectMessageRouter implements XMLMessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(DirectMessageRouter.class);
+
+    private final TopicTrie<XMLMessageListener> routes = new TopicTrie<>();
+
+    public void addRoute(String subscription, XMLMessageListener listener) {
+        routes.add(subscription, listener);
+    }
+
+    public void addRoutes(Iterable<String> subscriptions, XMLMessageListener listener) {
+        for (String subscription : subscriptions) {
+            routes.add(subscription, listener);
+        }
+    }
+
+    // False when the listener had no route for the subscription
+    public boolean removeRoute(String subscription, XMLMessageListener listener) {
+        return routes.remove(subscription, listener);
+    }
+
+    // Returns the subscriptions whose route for this listener was actually removed
+    public List<String> removeRoutes(Iterable<String> subscriptions, XMLMessageListener listener) {
+        List<String> removed = new ArrayList<>();
+        for (String subscription : subscriptions) {
+            if (routes.remove(subscription, listener)) {
+                removed.add(subscription);
+            }
+        }
+        return removed;
+    }
+
+    public int getRouteCount() {
+        return routes.size();
+    }
+
+    @Override
+    public void onReceive(BytesXMLMessage message) {
+        Destination destination = message.getDestination();
+        if (destination == null) {
+            return;
+        }
+
+        if (routes.forEachMatch(destination.getName(), DirectMessageRouter::deliver, message) == 0) {
+            logger.debug("No route for direct message on {}", destination.getName());
+        }
+    }
+
+    private static void deliver(XMLMessageListener listener, BytesXMLMessage message) {
+        listener.onReceive(message);
+    }
+
+    @Override
+    public void onException(JCSMPException e) {
+        logger.error("Direct message consumer error: {}", e.getMessage());
+        // A listener with many subscriptions still hears about the error once
+        Set<XMLMessageListener> listeners = Collections.newSetFromMap(new IdentityHashMap<>());
+        routes.forEachValue(listeners::add);
+        for (XMLMessageListener listener : listeners) {
+            listener.onException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,316 @@
+// TopicTrie.java
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Subscriptions indexed one topic level per node, so matching costs one lookup per level instead of
+// one pattern per subscription. Solace wildcards: '*' is exactly one level, a level ending in '*' any level
+// starting with what precedes it (including that prefix alone), a trailing '>' one or more levels.
+// Matching never allocates and takes no locks; writers serialize on the trie and publish nodes safely,
+// so a concurrent match sees each subscription either fully added or not at all.
+public class TopicTrie<V> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Node<V> root = new Node<>("", 0);
+    private int size;
+
+    public synchronized void add(String subscription, V value) {
+        Node<V> node = root;
+        String[] levels = subscription.split("/", -1);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.equals(">") && i == levels.length - 1) {
+                node.descendants = append(node.descendants, value);
+                size++;
+                return;
+            }
+            node = level.equals("*") ? node.anyChild()
+                : isPrefix(level) ? node.prefixChild(level.substring(0, level.length() - 1))
+                : node.childFor(level);
+        }
+        node.exact = append(node.exact, value);
+        size++;
+    }
+
+    public synchronized boolean remove(String subscription, V value) {
+        String[] levels = subscription.split("/", -1);
+        if (!remove(root, levels, 0, value)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    private boolean remove(Node<V> node, String[] levels, int depth, V value) {
+        if (depth == levels.length) {
+            Object[] remaining = without(node.exact, value);
+            if (remaining == node.exact) {
+                return false;
+            }
+            node.exact = remaining;
+            return true;
+        }
+
+        String level = levels[depth];
+        if (level.equals(">") && depth == levels.length - 1) {
+            Object[] remaining = without(node.descendants, value);
+            if (remaining == node.descendants) {
+                return false;
+            }
+            node.descendants = remaining;
+            return true;
+        }
+
+        boolean any = level.equals("*");
+        boolean prefix = !any && isPrefix(level);
+        Node<V> child = any ? node.any
+            : prefix ? node.prefixed(level.substring(0, level.length() - 1))
+            : node.child(level, 0, level.length());
+        if (child == null || !remove(child, levels, depth + 1, value)) {
+            return false;
+        }
+        // Prune on the way back up so unsubscribed branches do not cost lookups forever
+        if (child.isEmpty()) {
+            if (any) {
+                node.any = null;
+            } else if (prefix) {
+                node.prefixes = without(node.prefixes, child);
+            } else {
+                node.removeChild(level);
+            }
+        }
+        return true;
+    }
+
+    // A '*' anywhere else in a level is literal
+    private static boolean isPrefix(String level) {
+        return level.length() > 1 && level.charAt(level.length() - 1) == '*';
+    }
+
+    // Calls action once per matching subscription and returns the match count. A non-capturing
+    // action (a static method reference) keeps the whole call allocation-free.
+    public <A> int forEachMatch(String topic, BiConsumer<? super V, ? super A> action, A argument) {
+        return topic.isEmpty() ? 0 : match(root, topic, 0, action, argument);
+    }
+
+    private <A> int match(Node<V> node, String topic, int start, BiConsumer<? super V, ? super A> action, A argument) {
+        int end = topic.indexOf('/', start);
+        boolean last = end < 0;
+        if (last) {
+            end = topic.length();
+        }
+
+        // [start, end) is at least one more level, which is all a trailing '>' needs
+        int matched = deliver(node.descendants, action, argument);
+
+        Node<V> any = node.any;
+        if (any != null) {
+            matched += last ? deliver(any.exact, action, argument) : match(any, topic, end + 1, action, argument);
+        }
+        Object[] prefixes = node.prefixes;
+        for (Object candidate : prefixes) {
+            @SuppressWarnings("unchecked")
+            Node<V> prefixed = (Node<V>) candidate;
+            int length = prefixed.level.length();
+            if (end - start >= length && topic.regionMatches(start, prefixed.level, 0, length)) {
+                matched += last ? deliver(prefixed.exact, action, argument)
+                    : match(prefixed, topic, end + 1, action, argument);
+            }
+        }
+        Node<V> child = node.child(topic, start, end);
+        if (child != null) {
+            matched += last ? deliver(child.exact, action, argument) : match(child, topic, end + 1, action, argument);
+        }
+        return matched;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, A> int deliver(Object[] values, BiConsumer<? super V, ? super A> action, A argument) {
+        for (Object value : values) {
+            action.accept((V) value, argument);
+        }
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        forEachValue(root, (Consumer<Object>) action);
+    }
+
+    private static void forEachValue(Node<?> node, Consumer<Object> action) {
+        for (Object value : node.exact) {
+            action.accept(value);
+        }
+        for (Object value : node.descendants) {
+            action.accept(value);
+        }
+        Node<?> any = node.any;
+        if (any != null) {
+            forEachValue(any, action);
+        }
+        for (Object prefixed : node.prefixes) {
+            forEachValue((Node<?>) prefixed, action);
+        }
+        AtomicReferenceArray<? extends Node<?>> table = node.children;
+        if (table != null) {
+            for (int i = 0; i < table.length(); i++) {
+                Node<?> child = table.get(i);
+                if (child != null) {
+                    forEachValue(child, action);
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static Object[] append(Object[] values, Object value) {
+        Object[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+
+    private static Object[] without(Object[] values, Object value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                Object[] copy = new Object[values.length - 1];
+                System.arraycopy(values, 0, copy, 0, i);
+                System.arraycopy(values, i + 1, copy, i, copy.length - i);
+                return copy.length == 0 ? EMPTY : copy;
+            }
+        }
+        return values;
+    }
+
+    // Same as String.hashCode over the region, so lookups can hash a level without extracting it
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node<V> {
+        final String level;
+        final int hash;
+        // Value arrays are copied on write; child tables are open-addressed, at most half full,
+        // and only ever gain slots in place. Removals rebuild the table and swap it in.
+        volatile Object[] exact = EMPTY;
+        volatile Object[] descendants = EMPTY;
+        volatile Node<V> any;
+        // Children for levels ending in '*', keyed by the prefix before it; few per node, so a plain array
+        volatile Object[] prefixes = EMPTY;
+        volatile AtomicReferenceArray<Node<V>> children;
+        int childCount;
+
+        Node(String level, int hash) {
+            this.level = level;
+            this.hash = hash;
+        }
+
+        Node<V> child(String topic, int start, int end) {
+            AtomicReferenceArray<Node<V>> table = children;
+            if (table == null) {
+                return null;
+            }
+            int length = end - start;
+            int h = hash(topic, start, end);
+            int mask = table.length() - 1;
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                Node<V> child = table.get(i);
+                if (child == null) {
+                    return null;
+                }
+                if (child.hash == h && child.level.length() == length
+                        && topic.regionMatches(start, child.level, 0, length)) {
+                    return child;
+                }
+            }
+        }
+
+        Node<V> anyChild() {
+            Node<V> child = any;
+            if (child == null) {
+                child = new Node<>("*", 0);
+                any = child;
+            }
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<V> prefixed(String prefix) {
+            for (Object candidate : prefixes) {
+                if (((Node<V>) candidate).level.equals(prefix)) {
+                    return (Node<V>) candidate;
+                }
+            }
+            return null;
+        }
+
+        Node<V> prefixChild(String prefix) {
+            Node<V> child = prefixed(prefix);
+            if (child == null) {
+                child = new Node<>(prefix, 0);
+                prefixes = append(prefixes, child);
+            }
+            return child;
+        }
+
+        Node<V> childFor(String level) {
+            Node<V> child = child(level, 0, level.length());
+            if (child != null) {
+                return child;
+            }
+            child = new Node<>(level, hash(level, 0, level.length()));
+            AtomicReferenceArray<Node<V>> table = children;
+            if (table == null || (childCount + 1) * 2 > table.length()) {
+                children = rebuild(table == null ? 4 : table.length() * 2, child, null);
+            } else {
+                insert(table, child);
+            }
+            childCount++;
+            return child;
+        }
+
+        void removeChild(String level) {
+            AtomicReferenceArray<Node<V>> table = children;
+            childCount--;
+            children = childCount == 0 ? null : rebuild(table.length(), null, level);
+        }
+
+        private AtomicReferenceArray<Node<V>> rebuild(int capacity, Node<V> added, String removed) {
+            AtomicReferenceArray<Node<V>> table = new AtomicReferenceArray<>(capacity);
+            AtomicReferenceArray<Node<V>> previous = children;
+            if (previous != null) {
+                for (int i = 0; i < previous.length(); i++) {
+                    Node<V> child = previous.get(i);
+                    if (child != null && !child.level.equals(removed)) {
+                        insert(table, child);
+                    }
+                }
+            }
+            if (added != null) {
+                insert(table, added);
+            }
+            return table;
+        }
+
+        private static <V> void insert(AtomicReferenceArray<Node<V>> table, Node<V> child) {
+            int mask = table.length() - 1;
+            int i = child.hash & mask;
+            while (table.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            table.set(i, child);
+        }
+
+        boolean isEmpty() {
+            return exact.length == 0 && descendants.length == 0 && any == null && prefixes.length == 0
+                && children == null;
+        }
+    }
+}
\ No newline at end of file
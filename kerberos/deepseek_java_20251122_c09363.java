@@ -0,0 +1,375 @@
+// SolaceRequestor.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Pipelined request-reply over one temporary reply topic per session. Outstanding requests are held in
+// lock-striped primitive maps keyed by correlation id and their deadlines in a timer wheel, so a request
+// costs neither a blocked thread nor a scheduled task.
+public class SolaceRequestor {
+    private static final Logger logger = LoggerFactory.getLogger(SolaceRequestor.class);
+
+    private static final int STRIPES = 64;
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 1024;
+
+    private final SolaceClient client;
+    private final String name;
+    private final int maxInFlight;
+    private final Semaphore window;
+    private final AtomicLong nextCorrelationId = new AtomicLong(1);
+    private final AtomicReference<ReplyChannel> channel = new AtomicReference<>();
+    // Set while the first request's reply topic is being opened; requests arriving meanwhile wait on it
+    private final AtomicReference<CompletableFuture<ReplyChannel>> opening = new AtomicReference<>();
+    private final Executor channelOpener;
+    private final HashedTimerWheel timer;
+    private final Timer replyLatency;
+    private final Counter repliedRequests;
+    private final Counter timedOutRequests;
+    private final Counter failedRequests;
+    private final Counter rejectedRequests;
+    private final Counter lateReplies;
+
+    private volatile XMLMessageProducer producer;
+    // Set by the first request; sessions only get a reply topic from then on
+    private volatile boolean inUse;
+    private volatile boolean running = true;
+
+    // Opening a reply topic waits on the broker, so it runs on channelOpener rather than a requesting thread
+    SolaceRequestor(SolaceClient client, String name, SolaceConfig config, ClientMetrics metrics,
+                    Executor channelOpener) {
+        this.client = client;
+        this.name = name;
+        this.channelOpener = channelOpener;
+        this.maxInFlight = config.getRequestMaxInFlight();
+        this.window = new Semaphore(maxInFlight);
+        this.timer = new HashedTimerWheel("solace-request-timer-" + name, TICK_MS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+
+        this.replyLatency = metrics.timer("solace.request.latency", "client", name);
+        this.repliedRequests = metrics.counter("solace.requests", "client", name, "outcome", "replied");
+        this.timedOutRequests = metrics.counter("solace.requests", "client", name, "outcome", "timeout");
+        this.failedRequests = metrics.counter("solace.requests", "client", name, "outcome", "failed");
+        this.rejectedRequests = metrics.counter("solace.requests", "client", name, "outcome", "rejected");
+        this.lateReplies = metrics.counter("solace.request.late.replies", "client", name);
+        metrics.gauge("solace.request.in.flight", window, w -> maxInFlight - w.availablePermits(), "client", name);
+    }
+
+    // Never blocks, on the reply or on the broker. Completes on JCSMP's receive thread, or the timer thread
+    // for a timeout, so dependent stages must not block. The payload may be reused as soon as this returns.
+    // Failures arrive wrapped in a CompletionException, as they would at any later stage.
+    public CompletableFuture<BytesXMLMessage> request(Destination destination, byte[] payload, long timeoutMs) {
+        CompletableFuture<BytesXMLMessage> future = new CompletableFuture<>();
+        if (!running || !window.tryAcquire()) {
+            rejectedRequests.increment();
+            future.completeExceptionally(new CompletionException(new IllegalStateException(running
+                ? "Request window of " + maxInFlight + " requests is full"
+                : "Requestor " + name + " is shut down")));
+            return future;
+        }
+        inUse = true;
+
+        ReplyChannel replies = channel.get();
+        if (replies != null || producer == null || !client.isConnected()) {
+            send(replies, destination, payload, timeoutMs, future);
+            return future;
+        }
+        // No reply topic on this session yet. The request goes out once one is open, and its timeout
+        // starts then; the copy is because the caller may reuse the payload straight away.
+        byte[] copy = payload.clone();
+        openChannelAsync().whenComplete((opened, failure) -> send(opened, destination, copy, timeoutMs, future));
+        return future;
+    }
+
+    private void send(ReplyChannel replies, Destination destination, byte[] payload, long timeoutMs,
+                      CompletableFuture<BytesXMLMessage> future) {
+        XMLMessageProducer target = producer;
+        Pending request = new Pending(nextCorrelationId.getAndIncrement(), replies, future);
+        if (target == null || replies == null || !client.isConnected() || !replies.register(request)) {
+            complete(request, null, notConnected());
+            return;
+        }
+        request.timeout = timer.schedule(() -> expire(request, timeoutMs), timeoutMs, TimeUnit.MILLISECONDS);
+        // Leaving CONNECTED may have drained the channel just before this request joined it
+        if (!client.isConnected()) {
+            if (replies.remove(request)) {
+                complete(request, null, notConnected());
+            }
+            return;
+        }
+
+        BytesXMLMessage message = JCSMPFactory.onlyInstance().createMessage(BytesXMLMessage.class);
+        message.writeAttachment(payload);
+        message.setDeliveryMode(DeliveryMode.DIRECT);
+        message.setCorrelationId(Long.toString(request.id));
+        message.setReplyTo(replies.topic);
+        try {
+            target.send(message, destination);
+        } catch (JCSMPException e) {
+            if (replies.remove(request)) {
+                complete(request, null, new CompletionException(e));
+            }
+        }
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    // One open at a time; completes with null when no reply topic could be opened
+    private CompletableFuture<ReplyChannel> openChannelAsync() {
+        CompletableFuture<ReplyChannel> pending = opening.get();
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<ReplyChannel> started = new CompletableFuture<>();
+        if (!opening.compareAndSet(null, started)) {
+            return opening.get();
+        }
+        try {
+            channelOpener.execute(() -> {
+                ReplyChannel opened = null;
+                try {
+                    opened = currentChannel();
+                } finally {
+                    // Cleared first, so a later request sees the channel or starts another open
+                    opening.compareAndSet(started, null);
+                    started.complete(opened);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            opening.compareAndSet(started, null);
+            started.complete(null);
+        }
+        return started;
+    }
+
+    // The first request on a session opens its reply topic; later sessions get one when they connect
+    private ReplyChannel currentChannel() {
+        ReplyChannel replies = channel.get();
+        if (replies != null) {
+            return replies;
+        }
+        JCSMPSession session = client.currentSession();
+        if (session == null) {
+            return null;
+        }
+        try {
+            ReplyChannel opened = openChannel(session);
+            if (!channel.compareAndSet(null, opened)) {
+                return channel.get();
+            }
+            // The session was replaced while the topic was being subscribed
+            if (client.currentSession() != session && channel.compareAndSet(opened, null)) {
+                return null;
+            }
+            return opened;
+        } catch (JCSMPException e) {
+            logger.warn("Requestor {} could not open a reply topic: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    // Null until the first request, so clients that never send one pay no extra subscription per session
+    ReplyChannel openChannel(JCSMPSession session) throws JCSMPException {
+        if (!inUse) {
+            return null;
+        }
+        Topic topic = session.createTemporaryTopic();
+        session.addSubscription(topic, true);
+        return new ReplyChannel(topic, Math.max(16, maxInFlight / STRIPES));
+    }
+
+    // Returns the channel it replaces; the caller retires that once its session is gone
+    ReplyChannel attach(XMLMessageProducer producer, ReplyChannel replies) {
+        this.producer = producer;
+        return channel.getAndSet(replies);
+    }
+
+    // Fails everything sent on a channel that no longer receives replies, and anything that races to join it
+    void retire(ReplyChannel replies, String reason) {
+        if (replies != null) {
+            failAll(replies.drain(true), reason);
+        }
+    }
+
+    // Replies may still arrive on the channel once the connection is back, but callers should not wait for them
+    void failInFlight(String reason) {
+        ReplyChannel replies = channel.get();
+        if (replies != null) {
+            failAll(replies.drain(false), reason);
+        }
+    }
+
+    private void failAll(List<Pending> requests, String reason) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        logger.warn("Requestor {} failing {} in-flight requests: {}", name, requests.size(), reason);
+        // One wrapped failure for all of them; dependent stages pass a CompletionException on as it is
+        // rather than each filling in a stack trace for their own
+        CompletionException failure = new CompletionException(new SolaceConnectionException(reason));
+        for (Pending request : requests) {
+            complete(request, null, failure);
+        }
+    }
+
+    // Runs on JCSMP's receive thread for each direct message of the current session; false if it is not a reply
+    boolean onReply(BytesXMLMessage message) {
+        ReplyChannel replies = channel.get();
+        Destination destination = message.getDestination();
+        if (replies == null || destination == null || !replies.topicName.equals(destination.getName())) {
+            return false;
+        }
+        Pending request = replies.remove(parseCorrelationId(message.getCorrelationId()));
+        if (request == null) {
+            // Timed out or failed already
+            lateReplies.increment();
+            return true;
+        }
+        complete(request, message, null);
+        return true;
+    }
+
+    private static long parseCorrelationId(String correlationId) {
+        if (correlationId == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(correlationId);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void expire(Pending request, long timeoutMs) {
+        if (request.channel.remove(request)) {
+            complete(request, null, new CompletionException(new TimeoutException(
+                "No reply to request " + request.id + " on " + name + " within " + timeoutMs + "ms")));
+        }
+    }
+
+    private CompletionException notConnected() {
+        return new CompletionException(new SolaceConnectionException("Solace session " + name + " is not connected"));
+    }
+
+    // Called exactly once per request, by whoever removed it from its channel
+    private void complete(Pending request, BytesXMLMessage reply, CompletionException failure) {
+        HashedTimerWheel.Timeout timeout = request.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        window.release();
+        if (failure == null) {
+            repliedRequests.increment();
+            replyLatency.record(System.nanoTime() - request.sentNanos, TimeUnit.NANOSECONDS);
+            request.future.complete(reply);
+        } else {
+            (failure.getCause() instanceof TimeoutException ? timedOutRequests : failedRequests).increment();
+            request.future.completeExceptionally(failure);
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        retire(attach(null, null), "Requestor " + name + " shut down");
+        timer.stop();
+    }
+
+    // One session's reply topic and the requests waiting on it
+    static final class ReplyChannel {
+        private final Topic topic;
+        private final String topicName;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        private ReplyChannel(Topic topic, int stripeCapacity) {
+            this.topic = topic;
+            this.topicName = topic.getName();
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(stripeCapacity);
+            }
+        }
+
+        private Stripe stripeOf(long id) {
+            return stripes[(int) id & (STRIPES - 1)];
+        }
+
+        boolean register(Pending request) {
+            Stripe stripe = stripeOf(request.id);
+            synchronized (stripe) {
+                if (stripe.closed) {
+                    return false;
+                }
+                stripe.pending.put(request.id, request);
+                return true;
+            }
+        }
+
+        // True only for the caller that actually removed it, which then owns completing it
+        boolean remove(Pending request) {
+            Stripe stripe = stripeOf(request.id);
+            synchronized (stripe) {
+                if (stripe.pending.get(request.id) != request) {
+                    return false;
+                }
+                stripe.pending.remove(request.id);
+                return true;
+            }
+        }
+
+        Pending remove(long id) {
+            Stripe stripe = stripeOf(id);
+            synchronized (stripe) {
+                return stripe.pending.remove(id);
+            }
+        }
+
+        List<Pending> drain(boolean close) {
+            List<Pending> drained = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.pending.forEachValue(drained::add);
+                    stripe.pending.clear();
+                    stripe.closed |= close;
+                }
+            }
+            return drained;
+        }
+    }
+
+    private static final class Stripe {
+        final LongObjectHashMap<Pending> pending;
+        boolean closed;
+
+        Stripe(int capacity) {
+            this.pending = new LongObjectHashMap<>(capacity);
+        }
+    }
+
+    private static final class Pending {
+        final long id;
+        final ReplyChannel channel;
+        final CompletableFuture<BytesXMLMessage> future;
+        final long sentNanos = System.nanoTime();
+        volatile HashedTimerWheel.Timeout timeout;
+
+        Pending(long id, ReplyChannel channel, CompletableFuture<BytesXMLMessage> future) {
+            this.id = id;
+            this.channel = channel;
+            this.future = future;
+        }
+    }
+}
\ No newline at end of file
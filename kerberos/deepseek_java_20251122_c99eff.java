@@ -2,6 +2,9 @@
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Component
@@ -12,7 +15,21 @@ public class KerberosConfig {
     private long retryDelayMs = TimeUnit.SECONDS.toMillis(10);
     private long healthCheckTimeoutMs = TimeUnit.SECONDS.toMillis(5);
     private String kdc;
+    private List<String> kdcs = new ArrayList<>();
+    private long kdcFailurePenaltyMs = TimeUnit.SECONDS.toMillis(30);
     private String realm;
+    private boolean doubleBufferedRotation = false;
+    private long rotationGracePeriodMs = TimeUnit.SECONDS.toMillis(30);
+    private long refreshAwaitTimeoutMs = TimeUnit.SECONDS.toMillis(30);
+    private long serviceTicketRefreshBufferMs = TimeUnit.MINUTES.toMillis(5);
+    private long serviceTicketIdleEvictMs = TimeUnit.HOURS.toMillis(1);
+    private String credentialCachePath;
+    private int registryKdcThreads = 4;
+    private boolean debug = false;
+    private int registryKdcQueueCapacity = 1024;
+    private long registryRefreshJitterMs = TimeUnit.MINUTES.toMillis(5);
+    private long registryTimerTickMs = TimeUnit.SECONDS.toMillis(1);
+    private long registryRetryMaxDelayMs = TimeUnit.MINUTES.toMillis(15);
 
     // Getters and setters
     public long getRefreshBufferMs() { return refreshBufferMs; }
@@ -30,6 +47,74 @@ public class KerberosConfig {
     public String getKdc() { return kdc; }
     public void setKdc(String kdc) { this.kdc = kdc; }
     
+    public List<String> getKdcs() { return kdcs; }
+    public void setKdcs(List<String> kdcs) { this.kdcs = kdcs; }
+    
+    public long getKdcFailurePenaltyMs() { return kdcFailurePenaltyMs; }
+    public void setKdcFailurePenaltyMs(long kdcFailurePenaltyMs) { this.kdcFailurePenaltyMs = kdcFailurePenaltyMs; }
+
+    // kerberos.kdcs when set, otherwise kerberos.kdc, which may itself list several separated by commas or spaces
+    public List<String> getKdcList() {
+        if (kdcs != null && !kdcs.isEmpty()) {
+            return kdcs;
+        }
+        if (kdc == null || kdc.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(kdc.trim().split("[,\\s]+"));
+    }
+    
     public String getRealm() { return realm; }
     public void setRealm(String realm) { this.realm = realm; }
+    
+    public boolean isDoubleBufferedRotation() { return doubleBufferedRotation; }
+    public void setDoubleBufferedRotation(boolean doubleBufferedRotation) { this.doubleBufferedRotation = doubleBufferedRotation; }
+    
+    public long getRotationGracePeriodMs() { return rotationGracePeriodMs; }
+    public void setRotationGracePeriodMs(long rotationGracePeriodMs) { this.rotationGracePeriodMs = rotationGracePeriodMs; }
+    
+    public long getRefreshAwaitTimeoutMs() { return refreshAwaitTimeoutMs; }
+    public void setRefreshAwaitTimeoutMs(long refreshAwaitTimeoutMs) { this.refreshAwaitTimeoutMs = refreshAwaitTimeoutMs; }
+    
+    public long getServiceTicketRefreshBufferMs() { return serviceTicketRefreshBufferMs; }
+    public void setServiceTicketRefreshBufferMs(long serviceTicketRefreshBufferMs) { this.serviceTicketRefreshBufferMs = serviceTicketRefreshBufferMs; }
+    
+    public long getServiceTicketIdleEvictMs() { return serviceTicketIdleEvictMs; }
+    public void setServiceTicketIdleEvictMs(long serviceTicketIdleEvictMs) { this.serviceTicketIdleEvictMs = serviceTicketIdleEvictMs; }
+    
+    public String getCredentialCachePath() { return credentialCachePath; }
+    public void setCredentialCachePath(String credentialCachePath) { this.credentialCachePath = credentialCachePath; }
+    
+    public int getRegistryKdcThreads() { return registryKdcThreads; }
+    public void setRegistryKdcThreads(int registryKdcThreads) { this.registryKdcThreads = registryKdcThreads; }
+    
+    public int getRegistryKdcQueueCapacity() { return registryKdcQueueCapacity; }
+    public void setRegistryKdcQueueCapacity(int registryKdcQueueCapacity) { this.registryKdcQueueCapacity = registryKdcQueueCapacity; }
+    
+    public long getRegistryRefreshJitterMs() { return registryRefreshJitterMs; }
+    public void setRegistryRefreshJitterMs(long registryRefreshJitterMs) { this.registryRefreshJitterMs = registryRefreshJitterMs; }
+    
+    public long getRegistryTimerTickMs() { return registryTimerTickMs; }
+    public void setRegistryTimerTickMs(long registryTimerTickMs) { this.registryTimerTickMs = registryTimerTickMs; }
+    
+    public long getRegistryRetryMaxDelayMs() { return registryRetryMaxDelayMs; }
+    public void setRegistryRetryMaxDelayMs(long registryRetryMaxDelayMs) { this.registryRetryMaxDelayMs = registryRetryMaxDelayMs; }
+    
+    public boolean isDebug() { return debug; }
+    public void setDebug(boolean debug) { this.debug = debug; }
+
+    public void validate() {
+        if (getKdcList().isEmpty()) {
+            throw new IllegalStateException("kerberos.kdc or kerberos.kdcs must be set");
+        }
+        if (realm == null || realm.trim().isEmpty()) {
+            throw new IllegalStateException("kerberos.realm must be set");
+        }
+        if (refreshBufferMs <= 0 || retryDelayMs <= 0) {
+            throw new IllegalStateException("kerberos.refresh-buffer-ms and retry-delay-ms must be positive");
+        }
+        if (registryRetryMaxDelayMs < retryDelayMs) {
+            throw new IllegalStateException("kerberos.registry-retry-max-delay-ms must be at least retry-delay-ms");
+        }
+    }
 }
\ No newline at end of file
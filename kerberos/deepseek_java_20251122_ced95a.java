@@ -0,0 +1,246 @@
+// BrokerFailoverHarness.java
+import com.solacesystems.jcsmp.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Connects clients to several in-process broker nodes while one of them degrades, with hedged connects
+// off, on, and on with a warm standby. Measures time to connect on startup and time until another
+// session is current and CONNECTED after each DOWN_ERROR.
+// Usage: java BrokerFailoverHarness [--hosts=3] [--handshake-ms=20] [--slow-handshake-ms=3000]
+//                                   [--startups=10] [--warmup=20] [--drops=100] [--flaky-percent=5]
+//                                   [--modes=off,hedged,standby]
+public class BrokerFailoverHarness {
+    private final HarnessSupport.Options options;
+    private final Map<String, FakeBroker> brokers = new LinkedHashMap<>();
+    private KerberosAuthManager authManager;
+
+    BrokerFailoverHarness(HarnessSupport.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BrokerFailoverHarness harness = new BrokerFailoverHarness(new HarnessSupport.Options(args));
+        try {
+            harness.setUp();
+            harness.run();
+        } finally {
+            harness.tearDown();
+        }
+    }
+
+    void setUp() throws Exception {
+        int hostCount = (int) options.get("hosts", 3);
+        for (int i = 0; i < hostCount; i++) {
+            brokers.put("tcp://broker-" + (char) ('a' + i) + ".harness.local:55555", new FakeBroker());
+        }
+
+        // Brokers are what this harness measures; the Kerberos side is the instant stub KDC
+        authManager = new KerberosAuthManager(HarnessSupport.stubKerberosConfig(),
+            new ClientMetrics(new SimpleMeterRegistry()), "harness", "secret".toCharArray(),
+            HarnessSupport.stubJaasConfig());
+        authManager.start();
+    }
+
+    void run() throws Exception {
+        String degraded = brokers.keySet().iterator().next();
+        long slowMs = options.get("slow-handshake-ms", 3000);
+        long flakyPercent = options.get("flaky-percent", 5);
+
+        System.out.printf("%-10s %-8s %10s %10s %8s %8s %8s %8s %8s %8s  %s%n", "scenario", "mode",
+            "startP50ms", "startMaxms", "p50ms", "p90ms", "p99ms", "maxms", "hedged", "promoted", "handshakes");
+        for (String modeName : options.get("modes", "off,hedged,standby").split(",")) {
+            Mode mode = Mode.valueOf(modeName.trim().toUpperCase());
+            scenario("healthy", mode, degraded, broker -> { });
+            scenario("degraded", mode, degraded, broker -> broker.extraMs = slowMs);
+            scenario("flaky", mode, degraded, broker -> {
+                broker.spikeMs = slowMs;
+                broker.spikePercent = flakyPercent;
+            });
+            // Black-holed: the handshake only ends when the connect timeout expires
+            scenario("down", mode, degraded, broker -> {
+                broker.extraMs = slowMs;
+                broker.unavailable = true;
+            });
+        }
+    }
+
+    private void scenario(String name, Mode mode, String degraded, Fault fault) throws Exception {
+        long handshakeMs = options.get("handshake-ms", 20);
+        for (FakeBroker broker : brokers.values()) {
+            broker.reset(handshakeMs);
+        }
+
+        SolaceConfig config = new SolaceConfig();
+        config.setHosts(new ArrayList<>(brokers.keySet()));
+        config.setReconnectBaseDelayMs(10);
+        config.setReconnectMaxDelayMs(100);
+        config.setMaxConnectRetries(20);
+        config.setPublisherQueueCapacity(1024);
+        config.setStandbyEnabled(mode == Mode.STANDBY);
+        if (mode == Mode.OFF) {
+            // A hedge delay longer than any handshake never fires, leaving ranking and failover alone
+            config.setConnectHedgeMinDelayMs(TimeUnit.MINUTES.toMillis(5));
+            config.setConnectHedgeMaxDelayMs(TimeUnit.MINUTES.toMillis(5));
+        }
+
+        // Startup: fresh clients, nothing measured yet, the fault already in place
+        fault.inject(brokers.get(degraded));
+        HarnessSupport.LatencyRecorder startups = new HarnessSupport.LatencyRecorder();
+        for (int i = 0; i < options.get("startups", 10); i++) {
+            SolaceClient client = newClient(config, new ClientMetrics(new SimpleMeterRegistry()), name + "-start-" + i);
+            long start = System.nanoTime();
+            try {
+                client.connect();
+                startups.record(System.nanoTime() - start);
+            } finally {
+                client.shutdown();
+            }
+        }
+
+        // Recovery: one client learns the hosts while healthy, then the fault hits and sessions keep dropping
+        for (FakeBroker broker : brokers.values()) {
+            broker.reset(handshakeMs);
+        }
+        ClientMetrics metrics = new ClientMetrics(new SimpleMeterRegistry());
+        SolaceClient client = newClient(config, metrics, name);
+        try {
+            client.connect();
+            for (int i = 0; i < options.get("warmup", 20); i++) {
+                dropAndAwait(client, mode);
+            }
+
+            // The node the client is on is the one it will try first after the drop
+            fault.inject(brokers.get(client.getConnectedHost()));
+            for (FakeBroker broker : brokers.values()) {
+                broker.handshakes.set(0);
+            }
+            double hedgedBefore = metrics.counter("solace.connect.hedged", "client", name).count();
+            double promotedBefore = metrics.counter("solace.standby.promotions", "client", name).count();
+            HarnessSupport.LatencyRecorder recovery = new HarnessSupport.LatencyRecorder();
+            for (int i = 0; i < options.get("drops", 100); i++) {
+                recovery.record(dropAndAwait(client, mode));
+            }
+
+            StringBuilder perHost = new StringBuilder();
+            for (FakeBroker broker : brokers.values()) {
+                perHost.append(perHost.length() == 0 ? "" : "/").append(broker.handshakes.get());
+            }
+            System.out.printf("%-10s %-8s %10.1f %10.1f %8.2f %8.2f %8.2f %8.2f %8d %8d  %s%n",
+                name, mode.name().toLowerCase(),
+                startups.percentileMillis(50), startups.percentileMillis(100),
+                recovery.percentileMillis(50), recovery.percentileMillis(90), recovery.percentileMillis(99),
+                recovery.percentileMillis(100),
+                (long) (metrics.counter("solace.connect.hedged", "client", name).count() - hedgedBefore),
+                (long) (metrics.counter("solace.standby.promotions", "client", name).count() - promotedBefore),
+                perHost);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    // Polls rather than listening for CONNECTED, which a promoted standby never leaves
+    private long dropAndAwait(SolaceClient client, Mode mode) {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        // The standby is rebuilt in the background after each promotion; that part is not measured
+        while (!client.isConnected() || (mode == Mode.STANDBY && client.getStandbyHost() == null)) {
+            awaitUntil(client, deadline);
+        }
+
+        JCSMPSession dropped = client.currentSession();
+        long start = System.nanoTime();
+        HarnessSupport.FakeSession.of(dropped).drop("Harness injected DOWN_ERROR");
+        while (client.currentSession() == dropped || !client.isConnected()) {
+            awaitUntil(client, deadline);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void awaitUntil(SolaceClient client, long deadline) {
+        if (System.nanoTime() - deadline > 0) {
+            throw new IllegalStateException(client.getName() + " did not recover, state " + client.getConnectionState()
+                + ", standby " + client.getStandbyHost());
+        }
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+    }
+
+    private SolaceClient newClient(SolaceConfig config, ClientMetrics metrics, String name) {
+        return new SolaceClient(authManager, config, metrics, name, properties -> {
+            String host = properties.getStringProperty(JCSMPProperties.HOST);
+            FakeBroker broker = brokers.get(host);
+            if (broker == null) {
+                throw new IllegalStateException("Unknown harness broker " + host);
+            }
+            return new BrokerSession(broker).newProxy();
+        });
+    }
+
+    void tearDown() {
+        if (authManager != null) {
+            authManager.shutdown();
+        }
+    }
+
+    private enum Mode {
+        OFF, HEDGED, STANDBY
+    }
+
+    private interface Fault {
+        void inject(FakeBroker broker);
+    }
+
+    private static final class FakeBroker {
+        final AtomicLong handshakes = new AtomicLong();
+        volatile long handshakeMs;
+        volatile long extraMs;
+        volatile long spikeMs;
+        volatile long spikePercent;
+        volatile boolean unavailable;
+
+        void reset(long handshakeMs) {
+            this.handshakeMs = handshakeMs;
+            extraMs = 0;
+            spikeMs = 0;
+            spikePercent = 0;
+            unavailable = false;
+        }
+
+        // Ends early, like a real handshake, when the session is closed underneath it
+        void handshake(BrokerSession session) throws JCSMPException {
+            handshakes.incrementAndGet();
+            long delay = handshakeMs + extraMs;
+            if (spikePercent > 0 && ThreadLocalRandom.current().nextInt(100) < spikePercent) {
+                delay += spikeMs;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            while (System.nanoTime() - deadline < 0) {
+                if (session.closed) {
+                    throw new JCSMPException("Session closed during handshake");
+                }
+                HarnessSupport.sleep(Math.min(5, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) + 1));
+            }
+            if (unavailable) {
+                throw new JCSMPException("Timed out connecting to harness broker");
+            }
+        }
+    }
+
+    private static final class BrokerSession extends HarnessSupport.FakeSession {
+        private final FakeBroker broker;
+
+        BrokerSession(FakeBroker broker) {
+            this.broker = broker;
+        }
+
+        @Override
+        void connect() throws JCSMPException {
+            broker.handshake(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+// PublishAllocationHarness.java
+import com.solacesystems.jcsmp.XMLMessageProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Asserts that publishing allocates nothing per message once warm, from the per-thread allocation counters:
+// the publishing thread and the sender thread while connected, and the sender thread replaying the spool
+// after a disconnect. Exits non-zero when any of them allocates more than --max-bytes-per-message.
+// Usage: java PublishAllocationHarness [--messages=2000000] [--replay-messages=200000] [--payload-bytes=256]
+//                                      [--max-bytes-per-message=1]
+public class PublishAllocationHarness {
+    private static final String TOPIC = "harness/allocation";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        HarnessSupport.Options options = new HarnessSupport.Options(args);
+        long messages = options.get("messages", 2_000_000);
+        long replayMessages = options.get("replay-messages", 200_000);
+        int payloadBytes = (int) options.get("payload-bytes", 256);
+        double maxBytesPerMessage = options.get("max-bytes-per-message", 1.0);
+
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not report per-thread allocation");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        Path spoolDirectory = Files.createTempDirectory("publish-allocation-harness");
+        SolaceConfig config = new SolaceConfig();
+        config.setPublisherLingerMicros(0);
+        // Pools are capped, so the queue is kept small enough that everything in flight fits in one
+        config.setPublisherQueueCapacity(512);
+        config.setSpoolEnabled(true);
+        config.setSpoolDirectory(spoolDirectory.toString());
+        config.setSpoolSegmentBytes(16 * 1024 * 1024);
+        config.setSpoolMaxBytes(1024L * 1024 * 1024);
+        SolacePublisher publisher = new SolacePublisher("allocation", config, new ClientMetrics(new SimpleMeterRegistry()));
+
+        // Accepts batches without keeping them, standing in for a connected session
+        AtomicLong sent = new AtomicLong();
+        XMLMessageProducer producer = HarnessSupport.proxy(XMLMessageProducer.class, (proxy, method, methodArgs) -> {
+            if ("sendMultiple".equals(method.getName())) {
+                sent.addAndGet((Integer) methodArgs[2]);
+            }
+            return HarnessSupport.defaultValue(method.getReturnType());
+        });
+        publisher.attach(producer);
+        publisher.setConnected(true);
+        publisher.start();
+
+        boolean failed = false;
+        try {
+            Thread sender = findThread("solace-publisher-allocation");
+            byte[] array = new byte[payloadBytes];
+            ByteBuffer direct = ByteBuffer.allocateDirect(payloadBytes);
+
+            // Warm-up fills the pools, the topic cache and the JIT before anything is measured
+            publish(publisher, array, direct, messages / 4);
+            awaitSent(sent, messages / 4);
+
+            long publisherBefore = allocated(Thread.currentThread());
+            long senderBefore = allocated(sender);
+            long sentBefore = sent.get();
+            long start = System.nanoTime();
+
+            publish(publisher, array, direct, messages);
+            awaitSent(sent, sentBefore + messages);
+
+            long elapsedNanos = System.nanoTime() - start;
+            double publisherPerMessage = (allocated(Thread.currentThread()) - publisherBefore) / (double) messages;
+            double senderPerMessage = (allocated(sender) - senderBefore) / (double) messages;
+
+            replay(publisher, array, direct, replayMessages / 4, sent, sender);
+            double replayPerMessage = replay(publisher, array, direct, replayMessages, sent, sender);
+
+            System.out.printf("messages=%d replayed=%d payload=%dB rate=%.0f msg/s%n",
+                messages, replayMessages, payloadBytes, messages * 1e9 / elapsedNanos);
+            failed |= check("publishing thread", publisherPerMessage, maxBytesPerMessage);
+            failed |= check("sender thread", senderPerMessage, maxBytesPerMessage);
+            failed |= check("spool replay", replayPerMessage, maxBytesPerMessage);
+        } finally {
+            publisher.shutdown();
+            deleteRecursively(spoolDirectory);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    // Publishes while disconnected, so the sender spools everything, then measures the sender replaying it
+    private static double replay(SolacePublisher publisher, byte[] array, ByteBuffer direct, long count,
+                                 AtomicLong sent, Thread sender) throws InterruptedException {
+        publisher.setConnected(false);
+        publish(publisher, array, direct, count);
+        while (publisher.getQueuedCount() > 0) {
+            Thread.sleep(1);
+        }
+
+        long before = allocated(sender);
+        long target = sent.get() + count;
+        publisher.setConnected(true);
+        awaitSent(sent, target);
+        return (allocated(sender) - before) / (double) count;
+    }
+
+    private static boolean check(String name, double bytesPerMessage, double max) {
+        boolean failed = bytesPerMessage > max;
+        System.out.printf("%-18s %.3f bytes/message%s%n", name + ":", bytesPerMessage,
+            failed ? String.format("  FAIL: more than %.3f", max) : "");
+        return failed;
+    }
+
+    // Alternates byte[] and direct ByteBuffer payloads, retrying whenever the queue is full
+    private static void publish(SolacePublisher publisher, byte[] array, ByteBuffer direct, long count) {
+        for (long i = 0; i < count; i++) {
+            boolean accepted = (i & 1) == 0
+                ? publisher.publish(TOPIC, array)
+                : publisher.publish(TOPIC, direct);
+            while (!accepted) {
+                Thread.yield();
+                accepted = (i & 1) == 0
+                    ? publisher.publish(TOPIC, array)
+                    : publisher.publish(TOPIC, direct);
+            }
+        }
+    }
+
+    private static void awaitSent(AtomicLong sent, long target) {
+        while (sent.get() < target) {
+            Thread.yield();
+        }
+    }
+
+    private static long allocated(Thread thread) {
+        return THREADS.getThreadAllocatedBytes(thread.getId());
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) {
+                return thread;
+            }
+        }
+        throw new IllegalStateException("Thread " + name + " is not running");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+// ConnectionStateEvent.java
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("solace.ConnectionState")
+@Label("Solace Connection State")
+@Category({"Solace"})
+@Description("Transition of a SolaceClient connection state")
+public class ConnectionStateEvent extends jdk.jfr.Event {
+    @Label("Client")
+    String client;
+
+    @Label("Previous State")
+    String previous;
+
+    @Label("Current State")
+    String current;
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+// SolaceSessionFactory.java
+import com.solacesystems.jcsmp.InvalidPropertiesException;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.JCSMPProperties;
+import com.solacesystems.jcsmp.JCSMPSession;
+
+// Seam for SolaceClient session creation so benchmarks and harnesses can supply an in-process session
+public interface SolaceSessionFactory {
+    SolaceSessionFactory JCSMP = properties -> JCSMPFactory.onlyInstance().createSession(properties);
+
+    JCSMPSession createSession(JCSMPProperties properties) throws InvalidPropertiesException;
+}
\ No newline at end of file
@@ -3,8 +3,6 @@ import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Component
@@ -14,13 +12,18 @@ public class KerberosHealthIndicator implements HealthIndicator {
 
     public KerberosHealthIndicator(KerberosAuthManager authManager) {
         this.authManager = authManager;
+        // Built once per snapshot change; a probe only reads the reference
+        authManager.addHealthListener(this::onHealthChange);
+        onHealthChange(authManager.checkHealth());
     }
 
     @Override
     public Health health() {
+        return lastHealth.get();
+    }
+
+    private void onHealthChange(KerberosAuthManager.HealthCheckResult result) {
         try {
-            KerberosAuthManager.HealthCheckResult result = authManager.checkHealth();
-            
             Health.Builder healthBuilder = result.isHealthy() ? 
                 Health.up() : Health.down();
                 
@@ -28,16 +31,12 @@ public class KerberosHealthIndicator implements HealthIndicator {
             healthBuilder.withDetail("ticketStatus", result.getMessage());
             healthBuilder.withDetail("overallStatus", authManager.getHealthStatus().toString());
             
-            Health health = healthBuilder.build();
-            lastHealth.set(health);
-            return health;
+            lastHealth.set(healthBuilder.build());
             
         } catch (Exception e) {
-            Health health = Health.down()
+            lastHealth.set(Health.down()
                 .withDetail("error", e.getMessage())
-                .build();
-            lastHealth.set(health);
-            return health;
+                .build());
         }
     }
 
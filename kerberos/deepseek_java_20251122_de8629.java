@@ -0,0 +1,46 @@
+// ClientMetrics.java
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+// Meter factory for the Kerberos and Solace clients; hot paths look meters up once and keep them
+@Component
+public class ClientMetrics {
+    private final MeterRegistry registry;
+
+    public ClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    public Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+            .tags(tags)
+            .register(registry);
+    }
+
+    public DistributionSummary summary(String name, String baseUnit, String... tags) {
+        return DistributionSummary.builder(name)
+            .tags(tags)
+            .baseUnit(baseUnit)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    public <T> void gauge(String name, T target, ToDoubleFunction<T> value, String... tags) {
+        Gauge.builder(name, target, value)
+            .tags(tags)
+            .register(registry);
+    }
+}
\ No newline at end of file
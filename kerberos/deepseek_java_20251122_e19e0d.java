@@ -0,0 +1,354 @@
+// PublishSpool.java
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Memory-mapped segmented log holding publishes while the session is down.
+// Owned by the publisher's sender thread, so nothing here is synchronized.
+// Segments outlive the process: each one records how far it has been committed, and a restart rescans
+// everything after that point, so a message may be sent twice but is not lost.
+public class PublishSpool {
+    private static final Logger logger = LoggerFactory.getLogger(PublishSpool.class);
+
+    public enum OverflowPolicy { REJECT, DROP_OLDEST }
+
+    static final byte KIND_TOPIC = 0;
+    static final byte KIND_QUEUE = 1;
+
+    // Committed read offset at the start of every segment
+    private static final int SEGMENT_HEADER_BYTES = 4;
+    // payload length, destination kind, destination name length
+    private static final int HEADER_BYTES = 4 + 1 + 2;
+    // Written where the next record will go, so a rescan never runs into a reused segment's old records
+    private static final int END_MARKER = -1;
+    private static final String SUFFIX = ".spool";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final OverflowPolicy overflowPolicy;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSegmentId;
+    private long records;
+    private long droppedRecords;
+    private volatile long spooledBytes;
+
+    public PublishSpool(Path directory, int segmentBytes, long maxBytes, OverflowPolicy overflowPolicy) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(1, maxBytes / segmentBytes);
+        this.overflowPolicy = overflowPolicy;
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    // Picks up the segments a previous run left behind, oldest first, so they replay ahead of new publishes
+    private void recover() throws IOException {
+        List<Path> leftovers = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path leftover : found) {
+                leftovers.add(leftover);
+            }
+        }
+        // Segment ids are zero-padded, so name order is creation order
+        Collections.sort(leftovers);
+
+        for (Path leftover : leftovers) {
+            String fileName = leftover.getFileName().toString();
+            try {
+                long id = Long.parseLong(fileName.substring(0, fileName.length() - SUFFIX.length()));
+                nextSegmentId = Math.max(nextSegmentId, id + 1);
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring unexpected file {} in publish spool", leftover);
+                continue;
+            }
+
+            Segment segment = new Segment(leftover, true);
+            if (segment.records == 0) {
+                segment.delete();
+                continue;
+            }
+            segments.addLast(segment);
+            records += segment.records;
+            spooledBytes += segment.writePos - segment.readPos;
+        }
+        if (records > 0) {
+            logger.info("Recovered {} unsent messages from publish spool {}", records, directory);
+        }
+    }
+
+    // False when the record cannot be stored under the REJECT policy or is larger than a segment
+    public boolean append(byte kind, String destinationName, byte[] payload) {
+        byte[] name = destinationName.getBytes(StandardCharsets.UTF_8);
+        int size = HEADER_BYTES + name.length + payload.length;
+        if (size > segmentBytes - SEGMENT_HEADER_BYTES || name.length > Short.MAX_VALUE) {
+            return false;
+        }
+
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.capacity - tail.writePos < size) {
+            tail = roll();
+            if (tail == null) {
+                return false;
+            }
+        }
+
+        // The length goes in last, over the previous end marker, so a crash mid-append leaves the record unseen
+        MappedByteBuffer buffer = tail.buffer;
+        int start = tail.writePos;
+        buffer.position(start + 4);
+        buffer.put(kind);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.put(payload);
+        tail.markEnd(start + size);
+        buffer.putInt(start, payload.length);
+        tail.writePos += size;
+        tail.records++;
+        records++;
+        spooledBytes += size;
+        return true;
+    }
+
+    private Segment roll() {
+        if (segments.size() >= maxSegments) {
+            if (overflowPolicy == OverflowPolicy.REJECT || segments.size() == 1 && segments.peekFirst().isReading()) {
+                return null;
+            }
+            Segment oldest = segments.pollFirst();
+            droppedRecords += oldest.records;
+            records -= oldest.records;
+            spooledBytes -= oldest.writePos - oldest.readPos;
+            logger.warn("Publish spool {} full, dropped {} oldest messages", directory, oldest.records);
+            oldest.delete();
+        }
+
+        try {
+            Segment segment = new Segment(directory.resolve(String.format("%019d%s", nextSegmentId++, SUFFIX)), false);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            logger.error("Failed to create publish spool segment in {}", directory, e);
+            return null;
+        }
+    }
+
+    // Reads past the committed position; commit() or rollback() settles what was read.
+    // A read never crosses into the next segment, so callers may get fewer records than asked for.
+    public boolean readNext(SpooledMessage out) {
+        Segment head = segments.peekFirst();
+        while (head != null && head.isDrained() && head != segments.peekLast()) {
+            segments.pollFirst().delete();
+            head = segments.peekFirst();
+        }
+        if (head == null || head.pendingPos >= head.writePos) {
+            return false;
+        }
+
+        MappedByteBuffer buffer = head.buffer;
+        buffer.position(head.pendingPos);
+        int payloadLength = buffer.getInt();
+        out.kind = buffer.get();
+        out.readName(buffer, buffer.getShort());
+        if (out.payload == null || out.payload.length != payloadLength) {
+            out.payload = new byte[payloadLength];
+        }
+        buffer.get(out.payload);
+        head.pendingPos = buffer.position();
+        head.pendingRecords++;
+        return true;
+    }
+
+    public void commit() {
+        Segment head = segments.peekFirst();
+        if (head == null) {
+            return;
+        }
+        spooledBytes -= head.pendingPos - head.readPos;
+        records -= head.pendingRecords;
+        head.records -= head.pendingRecords;
+        head.readPos = head.pendingPos;
+        head.pendingRecords = 0;
+
+        if (head.isDrained() && head == segments.peekLast()) {
+            // Reuse the only segment instead of creating a new file for the next outage.
+            // The marker goes first: until the header moves back, it points at the old end marker.
+            head.readPos = head.pendingPos = head.writePos = SEGMENT_HEADER_BYTES;
+            head.markEnd(SEGMENT_HEADER_BYTES);
+        }
+        head.buffer.putInt(0, head.readPos);
+    }
+
+    public void rollback() {
+        Segment head = segments.peekFirst();
+        if (head != null) {
+            head.pendingPos = head.readPos;
+            head.pendingRecords = 0;
+        }
+    }
+
+    // Appends a message the broker keeps rejecting to a file beside the segments, in the same record layout,
+    // so it can be inspected or replayed by hand
+    public void deadLetter(SpooledMessage message) throws IOException {
+        byte[] name = message.destinationName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + name.length + message.payload.length);
+        record.putInt(message.payload.length);
+        record.put(message.kind);
+        record.putShort((short) name.length);
+        record.put(name);
+        record.put(message.payload);
+        record.flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return records == 0;
+    }
+
+    public long getSpooledBytes() {
+        return spooledBytes;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    // Unsent messages stay on disk for the next start; only drained segments are removed
+    public void close() {
+        if (records > 0) {
+            logger.warn("Publish spool {} closed with {} unsent messages, keeping them for the next start",
+                directory, records);
+        }
+        for (Segment segment : segments) {
+            if (segment.records == 0) {
+                segment.delete();
+            } else {
+                segment.buffer.force();
+            }
+        }
+        segments.clear();
+        records = 0;
+        spooledBytes = 0;
+    }
+
+    // Reused by the reader; valid until the next readNext
+    // Reusable: a read keeps the previous payload array when the length matches and the previous name when
+    // the destination repeats, so replaying same-size messages to the same destination allocates nothing.
+    // The payload is overwritten by the next read into the same instance.
+    public static final class SpooledMessage {
+        byte kind;
+        String destinationName;
+        byte[] payload;
+        private byte[] nameBytes = new byte[0];
+
+        private void readName(MappedByteBuffer buffer, int length) {
+            int start = buffer.position();
+            boolean same = destinationName != null && length == nameBytes.length;
+            for (int i = 0; same && i < length; i++) {
+                same = buffer.get(start + i) == nameBytes[i];
+            }
+            if (same) {
+                buffer.position(start + length);
+                return;
+            }
+            nameBytes = new byte[length];
+            buffer.get(nameBytes);
+            destinationName = new String(nameBytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        int writePos;
+        int readPos;
+        int pendingPos;
+        int records;
+        int pendingRecords;
+
+        Segment(Path path, boolean existing) throws IOException {
+            this.path = path;
+            try (FileChannel channel = existing
+                    ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Recovered segments keep their own size in case the configured one has changed since.
+                // The mapping stays valid after the channel is closed.
+                this.capacity = existing ? (int) Math.min(channel.size(), Integer.MAX_VALUE) : segmentBytes;
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }
+
+            if (existing) {
+                scan();
+            } else {
+                readPos = pendingPos = writePos = SEGMENT_HEADER_BYTES;
+                markEnd(SEGMENT_HEADER_BYTES);
+                buffer.putInt(0, readPos);
+            }
+        }
+
+        // Counts the complete records after the committed offset; the first one that does not parse ends the log
+        private void scan() {
+            int committed = capacity >= SEGMENT_HEADER_BYTES ? buffer.getInt(0) : 0;
+            if (committed < SEGMENT_HEADER_BYTES || committed > capacity) {
+                committed = SEGMENT_HEADER_BYTES;
+            }
+            readPos = pendingPos = writePos = committed;
+            while (capacity - writePos >= HEADER_BYTES) {
+                int payloadLength = buffer.getInt(writePos);
+                byte kind = buffer.get(writePos + 4);
+                short nameLength = buffer.getShort(writePos + 5);
+                if (payloadLength < 0 || kind != KIND_TOPIC && kind != KIND_QUEUE || nameLength <= 0
+                        || (long) capacity - writePos - HEADER_BYTES - nameLength < payloadLength) {
+                    break;
+                }
+                writePos += HEADER_BYTES + nameLength + payloadLength;
+                records++;
+            }
+        }
+
+        void markEnd(int position) {
+            if (capacity - position >= 4) {
+                buffer.putInt(position, END_MARKER);
+            }
+        }
+
+        boolean isDrained() {
+            return readPos == writePos && pendingPos == readPos;
+        }
+
+        boolean isReading() {
+            return pendingPos != readPos;
+        }
+
+        void delete() {
+            try {
+                // Disk space returns once the mapping is collected
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete publish spool segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
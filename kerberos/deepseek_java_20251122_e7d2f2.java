@@ -0,0 +1,652 @@
+// EmbeddedKdc.java
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A real KDC for harnesses: answers AS-REQs over UDP and TCP with aes-cts-hmac-sha1-96 TGTs that the JDK's
+// Krb5LoginModule accepts, so logins go through the real client, its KDC fallback and the process-wide
+// krb5 Config. Only the AS exchange is implemented, with the encrypted-timestamp pre-authentication
+// Active Directory requires, so a wrong password is refused by the KDC as "Pre-authentication
+// information was invalid"; there is no TGS exchange and no renewal.
+// java.security.krb5.kdc cannot carry ports, so every instance listens on port 88 of its own loopback
+// address (127.0.0.1, 127.0.0.2, ...), which needs root or CAP_NET_BIND_SERVICE.
+public final class EmbeddedKdc implements Closeable {
+    static final int PORT = 88;
+
+    private static final int ETYPE_AES128 = 17;
+    private static final int ETYPE_AES256 = 18;
+    private static final int PA_ENC_TIMESTAMP = 2;
+    private static final int PA_ETYPE_INFO2 = 19;
+    private static final int KU_PA_ENC_TIMESTAMP = 1;
+    private static final int KU_TICKET = 2;
+    private static final int KU_AS_REP_ENC_PART = 3;
+    private static final int KDC_ERR_C_PRINCIPAL_UNKNOWN = 6;
+    private static final int KDC_ERR_S_PRINCIPAL_UNKNOWN = 7;
+    private static final int KDC_ERR_ETYPE_NOSUPP = 14;
+    private static final int KDC_ERR_PREAUTH_FAILED = 24;
+    private static final int KDC_ERR_PREAUTH_REQUIRED = 25;
+    private static final int KRB_AP_ERR_SKEW = 37;
+    private static final int KRB_ERR_GENERIC = 60;
+    private static final long CLOCK_SKEW_MS = 300_000;
+    private static final DateTimeFormatter KERBEROS_TIME =
+        DateTimeFormatter.ofPattern("yyyyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String realm;
+    private final String host;
+    private final Map<String, char[]> principals = new ConcurrentHashMap<>();
+    // string-to-key is deliberately slow, so like a real KDC this keeps the derived keys
+    private final Map<String, byte[]> keys = new ConcurrentHashMap<>();
+    private final byte[] tgsKey = new byte[32];
+    private final SecureRandom random = new SecureRandom();
+    private final DatagramSocket udp;
+    private final ServerSocket tcp;
+    private final ExecutorService workers;
+    private volatile boolean closed;
+
+    final AtomicLong asRequests = new AtomicLong();
+    volatile long latencyMs;
+    volatile long extraLatencyMs;
+    volatile long spikeLatencyMs;
+    volatile long spikePercent;
+    volatile long ticketLifetimeMs = HarnessSupport.DEFAULT_TICKET_LIFETIME_MS;
+    // Receives requests but never answers them, like a black-holed KDC
+    volatile boolean unavailable;
+
+    EmbeddedKdc(String realm, String host) throws IOException {
+        this.realm = realm;
+        this.host = host;
+        random.nextBytes(tgsKey);
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(host), PORT);
+        try {
+            udp = new DatagramSocket(address);
+        } catch (BindException e) {
+            throw bindFailure(address, e);
+        }
+        tcp = new ServerSocket();
+        try {
+            tcp.bind(address);
+        } catch (IOException e) {
+            udp.close();
+            throw e instanceof BindException ? bindFailure(address, (BindException) e) : e;
+        }
+        workers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "embedded-kdc-" + host);
+            t.setDaemon(true);
+            return t;
+        });
+        workers.execute(this::serveUdp);
+        workers.execute(this::serveTcp);
+    }
+
+    private static BindException bindFailure(InetSocketAddress address, BindException cause) {
+        BindException e = new BindException("Cannot bind " + address + " (" + cause.getMessage()
+            + "): port 88 needs root or CAP_NET_BIND_SERVICE, and addresses other than 127.0.0.1 need"
+            + " the whole 127.0.0.0/8 on the loopback interface");
+        e.initCause(cause);
+        return e;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    void addPrincipal(String name, String password) {
+        principals.put(name, password.toCharArray());
+        keys.keySet().removeIf(key -> key.startsWith(name + ":"));
+    }
+
+    void reset(long latencyMs) {
+        this.latencyMs = latencyMs;
+        extraLatencyMs = 0;
+        spikeLatencyMs = 0;
+        spikePercent = 0;
+        ticketLifetimeMs = HarnessSupport.DEFAULT_TICKET_LIFETIME_MS;
+        unavailable = false;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        udp.close();
+        try {
+            tcp.close();
+        } catch (IOException ignored) {
+        }
+        workers.shutdownNow();
+    }
+
+    private void serveUdp() {
+        while (!closed) {
+            DatagramPacket packet = new DatagramPacket(new byte[65536], 65536);
+            try {
+                udp.receive(packet);
+            } catch (IOException e) {
+                continue;
+            }
+            byte[] request = Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength());
+            workers.execute(() -> {
+                byte[] reply = answer(request);
+                if (reply != null) {
+                    try {
+                        udp.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+                    } catch (IOException ignored) {
+                    }
+                }
+            });
+        }
+    }
+
+    // One length-prefixed request per connection, as the JDK sends them
+    private void serveTcp() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = tcp.accept();
+            } catch (IOException e) {
+                continue;
+            }
+            workers.execute(() -> {
+                try (Socket s = socket) {
+                    DataInputStream in = new DataInputStream(s.getInputStream());
+                    byte[] request = new byte[in.readInt()];
+                    in.readFully(request);
+                    byte[] reply = answer(request);
+                    if (reply != null) {
+                        DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                        out.writeInt(reply.length);
+                        out.write(reply);
+                        out.flush();
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+        }
+    }
+
+    private byte[] answer(byte[] request) {
+        asRequests.incrementAndGet();
+        long delay = latencyMs + extraLatencyMs;
+        if (spikePercent > 0 && ThreadLocalRandom.current().nextInt(100) < spikePercent) {
+            delay += spikeLatencyMs;
+        }
+        HarnessSupport.sleep(delay);
+        if (unavailable || closed) {
+            return null;
+        }
+
+        try {
+            return asReply(Der.read(request));
+        } catch (KdcError e) {
+            return krbError(e.code, e.getMessage(), e.data);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            return krbError(KRB_ERR_GENERIC, "Malformed request: " + e, null);
+        }
+    }
+
+    private byte[] asReply(Der asReq) throws IOException, GeneralSecurityException, KdcError {
+        if (asReq.tag != 0x6A) {
+            throw new KdcError(KRB_ERR_GENERIC, "Only AS-REQ is supported", null);
+        }
+        Der kdcReq = asReq.children().get(0);
+        Der body = kdcReq.field(4);
+        byte[] options = body.field(0).bytes();
+        Der cname = body.field(1);
+        Der sname = body.field(3);
+        long till = body.field(5).time();
+        Der rtime = body.optionalField(6);
+        long nonce = body.field(7).integer();
+
+        String client = principalName(cname);
+        char[] password = principals.get(client);
+        if (!realm.equals(body.field(2).string()) || password == null) {
+            throw new KdcError(KDC_ERR_C_PRINCIPAL_UNKNOWN, "Client not found", null);
+        }
+        if (!("krbtgt/" + realm).equals(principalName(sname))) {
+            throw new KdcError(KDC_ERR_S_PRINCIPAL_UNKNOWN, "Only krbtgt/" + realm + " is issued", null);
+        }
+        int etype = 0;
+        for (Der requested : body.field(8).children()) {
+            long value = requested.integer();
+            if (value == ETYPE_AES128 || value == ETYPE_AES256) {
+                etype = (int) value;
+                break;
+            }
+        }
+        if (etype == 0) {
+            throw new KdcError(KDC_ERR_ETYPE_NOSUPP, "Only aes-cts-hmac-sha1-96 is supported", null);
+        }
+        int keyLength = etype == ETYPE_AES256 ? 32 : 16;
+        byte[] clientKey = clientKey(client, password, etype, keyLength);
+        preauthenticate(kdcReq.optionalField(3), client, etype, clientKey);
+
+        // Flags mirror the requested options, which is what the client checks, plus INITIAL and PRE-AUTHENT
+        byte[] flags = Arrays.copyOf(options, 4);
+        flags[0] &= 0x7E;
+        flags[1] = (byte) ((flags[1] & 0x80) | 0x60);
+        flags[2] = 0;
+        flags[3] = 0;
+        boolean renewable = (flags[1] & 0x80) != 0;
+
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        long end = now + ticketLifetimeMs;
+        if (till > 0 && till < end) {
+            end = till;
+        }
+        long renewTill = renewable && rtime != null && rtime.time() > 0 ? Math.max(end, rtime.time()) : end;
+
+        byte[] sessionKey = new byte[keyLength];
+        random.nextBytes(sessionKey);
+        byte[] encryptionKey = seq(ctx(0, integer(etype)), ctx(1, octets(sessionKey)));
+        byte[] times = concat(ctx(5, time(now)), ctx(6, time(now)), ctx(7, time(end)),
+            renewable ? ctx(8, time(renewTill)) : new byte[0]);
+
+        byte[] encTicketPart = app(3, seq(ctx(0, bitString(flags)), ctx(1, encryptionKey),
+            ctx(2, string(realm)), ctx(3, cname.encoded),
+            ctx(4, seq(ctx(0, integer(1)), ctx(1, octets(new byte[0])))), times));
+        byte[] ticket = app(1, seq(ctx(0, integer(5)), ctx(1, string(realm)), ctx(2, sname.encoded),
+            ctx(3, encryptedData(etype, encrypt(Arrays.copyOf(tgsKey, keyLength), KU_TICKET, encTicketPart)))));
+
+        byte[] encAsRepPart = app(25, seq(ctx(0, encryptionKey),
+            ctx(1, seq(seq(ctx(0, integer(0)), ctx(1, time(now))))),
+            ctx(2, integer(nonce)), ctx(4, bitString(flags)), times,
+            ctx(9, string(realm)), ctx(10, sname.encoded)));
+
+        return app(11, seq(ctx(0, integer(5)), ctx(1, integer(11)), ctx(3, string(realm)), ctx(4, cname.encoded),
+            ctx(5, ticket), ctx(6, encryptedData(etype, encrypt(clientKey, KU_AS_REP_ENC_PART, encAsRepPart)))));
+    }
+
+    private byte[] clientKey(String client, char[] password, int etype, int keyLength) throws GeneralSecurityException {
+        String id = client + ":" + etype;
+        byte[] key = keys.get(id);
+        if (key == null) {
+            key = stringToKey(password, realm + client.replace("/", ""), keyLength);
+            keys.put(id, key);
+        }
+        return key;
+    }
+
+    // Without a PA-ENC-TIMESTAMP the client is told which etype and salt to use, and sends the request again
+    private void preauthenticate(Der padata, String client, int etype, byte[] clientKey)
+            throws IOException, GeneralSecurityException, KdcError {
+        if (padata != null) {
+            for (Der pa : padata.children()) {
+                if (pa.field(1).integer() != PA_ENC_TIMESTAMP) {
+                    continue;
+                }
+                Der encrypted = Der.read(pa.field(2).bytes());
+                byte[] timestamp;
+                try {
+                    timestamp = decrypt(clientKey, KU_PA_ENC_TIMESTAMP, encrypted.field(2).bytes());
+                } catch (GeneralSecurityException e) {
+                    throw new KdcError(KDC_ERR_PREAUTH_FAILED, "Pre-authentication failed for " + client, null);
+                }
+                if (Math.abs(Der.read(timestamp).field(0).time() - System.currentTimeMillis()) > CLOCK_SKEW_MS) {
+                    throw new KdcError(KRB_AP_ERR_SKEW, "Clock skew too great", null);
+                }
+                return;
+            }
+        }
+        byte[] etypeInfo = seq(seq(ctx(0, integer(etype)), ctx(1, string(realm + client.replace("/", "")))));
+        byte[] methods = seq(
+            seq(ctx(1, integer(PA_ETYPE_INFO2)), ctx(2, octets(etypeInfo))),
+            seq(ctx(1, integer(PA_ENC_TIMESTAMP)), ctx(2, octets(new byte[0]))));
+        throw new KdcError(KDC_ERR_PREAUTH_REQUIRED, "Additional pre-authentication required", methods);
+    }
+
+    private byte[] krbError(int code, String text, byte[] data) {
+        long now = System.currentTimeMillis();
+        return app(30, seq(ctx(0, integer(5)), ctx(1, integer(30)), ctx(4, time(now)), ctx(5, integer(0)),
+            ctx(6, integer(code)), ctx(9, string(realm)),
+            ctx(10, seq(ctx(0, integer(2)), ctx(1, seq(string("krbtgt"), string(realm))))),
+            ctx(11, string(text)), data != null ? ctx(12, octets(data)) : new byte[0]));
+    }
+
+    private static String principalName(Der name) throws IOException {
+        StringBuilder joined = new StringBuilder();
+        for (Der component : name.field(1).children()) {
+            joined.append(joined.length() == 0 ? "" : "/").append(component.string());
+        }
+        return joined.toString();
+    }
+
+    // RFC 3962: PBKDF2-HMAC-SHA1 with the default 4096 iterations, then DK(key, "kerberos")
+    static byte[] stringToKey(char[] password, String salt, int keyLength) throws GeneralSecurityException {
+        SecretKeyFactory pbkdf2 = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+        byte[] seed = pbkdf2.generateSecret(
+            new PBEKeySpec(password, salt.getBytes(StandardCharsets.UTF_8), 4096, keyLength * 8)).getEncoded();
+        return derive(seed, "kerberos".getBytes(StandardCharsets.UTF_8));
+    }
+
+    // RFC 3961 encrypt-then-MAC over confounder|plaintext, with Ke and Ki derived for the key usage
+    private byte[] encrypt(byte[] baseKey, int usage, byte[] plaintext) throws GeneralSecurityException {
+        byte[] data = new byte[16 + plaintext.length];
+        byte[] confounder = new byte[16];
+        random.nextBytes(confounder);
+        System.arraycopy(confounder, 0, data, 0, 16);
+        System.arraycopy(plaintext, 0, data, 16, plaintext.length);
+
+        Mac hmac = Mac.getInstance("HmacSHA1");
+        hmac.init(new SecretKeySpec(derive(baseKey, usageConstant(usage, 0x55)), "HmacSHA1"));
+        byte[] checksum = Arrays.copyOf(hmac.doFinal(data), 12);
+        return concat(ctsEncrypt(derive(baseKey, usageConstant(usage, 0xAA)), data), checksum);
+    }
+
+    private static byte[] decrypt(byte[] baseKey, int usage, byte[] cipher) throws GeneralSecurityException {
+        if (cipher.length < 28) {
+            throw new GeneralSecurityException("Ciphertext too short");
+        }
+        byte[] data = ctsDecrypt(derive(baseKey, usageConstant(usage, 0xAA)), Arrays.copyOf(cipher, cipher.length - 12));
+        Mac hmac = Mac.getInstance("HmacSHA1");
+        hmac.init(new SecretKeySpec(derive(baseKey, usageConstant(usage, 0x55)), "HmacSHA1"));
+        byte[] expected = Arrays.copyOf(hmac.doFinal(data), 12);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(cipher, cipher.length - 12, cipher.length))) {
+            throw new GeneralSecurityException("Checksum failed");
+        }
+        return Arrays.copyOfRange(data, 16, data.length);
+    }
+
+    private static byte[] usageConstant(int usage, int suffix) {
+        return new byte[]{(byte) (usage >>> 24), (byte) (usage >>> 16), (byte) (usage >>> 8), (byte) usage, (byte) suffix};
+    }
+
+    // DK(key, constant): the n-folded constant encrypted repeatedly until there is a key's worth of output
+    private static byte[] derive(byte[] key, byte[] constant) throws GeneralSecurityException {
+        Cipher aes = Cipher.getInstance("AES/ECB/NoPadding");
+        aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        byte[] derived = new byte[key.length];
+        byte[] block = nfold(constant, 16);
+        for (int filled = 0; filled < derived.length; filled += 16) {
+            block = aes.doFinal(block);
+            System.arraycopy(block, 0, derived, filled, Math.min(16, derived.length - filled));
+        }
+        return derived;
+    }
+
+    // AES-CBC with ciphertext stealing: the last two blocks swap and the final one is truncated
+    private static byte[] ctsEncrypt(byte[] key, byte[] data) throws GeneralSecurityException {
+        Cipher cbc = Cipher.getInstance("AES/CBC/NoPadding");
+        cbc.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(new byte[16]));
+        byte[] blocks = cbc.doFinal(Arrays.copyOf(data, (data.length + 15) / 16 * 16));
+        if (data.length == 16) {
+            return blocks;
+        }
+        int last = blocks.length - 16;
+        int penultimate = last - 16;
+        byte[] out = new byte[data.length];
+        System.arraycopy(blocks, 0, out, 0, penultimate);
+        System.arraycopy(blocks, last, out, penultimate, 16);
+        System.arraycopy(blocks, penultimate, out, last, data.length - last);
+        return out;
+    }
+
+    private static byte[] ctsDecrypt(byte[] key, byte[] cipher) throws GeneralSecurityException {
+        Cipher cbc = Cipher.getInstance("AES/CBC/NoPadding");
+        cbc.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(new byte[16]));
+        if (cipher.length == 16) {
+            return cbc.doFinal(cipher);
+        }
+        int partial = cipher.length % 16 == 0 ? 16 : cipher.length % 16;
+        int last = cipher.length - partial;
+        int penultimate = last - 16;
+
+        // The full block sent last decrypts to the stolen tail of its predecessor XOR the padded final block
+        Cipher ecb = Cipher.getInstance("AES/ECB/NoPadding");
+        ecb.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"));
+        byte[] stolen = ecb.doFinal(cipher, penultimate, 16);
+        byte[] chained = new byte[last];
+        System.arraycopy(cipher, 0, chained, 0, penultimate);
+        System.arraycopy(cipher, last, chained, penultimate, partial);
+        System.arraycopy(stolen, partial, chained, penultimate + partial, 16 - partial);
+
+        byte[] out = Arrays.copyOf(cbc.doFinal(chained), cipher.length);
+        for (int i = 0; i < partial; i++) {
+            out[last + i] = (byte) (stolen[i] ^ cipher[last + i]);
+        }
+        return out;
+    }
+
+    // RFC 3961 n-fold
+    static byte[] nfold(byte[] in, int outLength) {
+        int inLength = in.length;
+        int lcm = lcm(inLength, outLength);
+        byte[] out = new byte[outLength];
+        int carry = 0;
+        for (int i = lcm - 1; i >= 0; i--) {
+            int msbit = ((inLength << 3) - 1
+                + (((inLength << 3) + 13) * (i / inLength))
+                + ((inLength - (i % inLength)) << 3)) % (inLength << 3);
+            carry += ((((in[((inLength - 1) - (msbit >>> 3)) % inLength] & 0xFF) << 8)
+                | (in[(inLength - (msbit >>> 3)) % inLength] & 0xFF)) >>> ((msbit & 7) + 1)) & 0xFF;
+            carry += out[i % outLength] & 0xFF;
+            out[i % outLength] = (byte) carry;
+            carry >>>= 8;
+        }
+        for (int i = outLength - 1; carry != 0 && i >= 0; i--) {
+            carry += out[i] & 0xFF;
+            out[i] = (byte) carry;
+            carry >>>= 8;
+        }
+        return out;
+    }
+
+    private static int lcm(int a, int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            int t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+
+    private static byte[] encryptedData(int etype, byte[] cipher) {
+        return seq(ctx(0, integer(etype)), ctx(1, integer(1)), ctx(2, octets(cipher)));
+    }
+
+    private static byte[] seq(byte[]... parts) {
+        return tlv(0x30, parts);
+    }
+
+    private static byte[] ctx(int tag, byte[] value) {
+        return tlv(0xA0 | tag, value);
+    }
+
+    private static byte[] app(int tag, byte[] value) {
+        return tlv(0x60 | tag, value);
+    }
+
+    private static byte[] integer(long value) {
+        byte[] bytes = java.math.BigInteger.valueOf(value).toByteArray();
+        return tlv(0x02, bytes);
+    }
+
+    private static byte[] string(String value) {
+        return tlv(0x1B, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] octets(byte[] value) {
+        return tlv(0x04, value);
+    }
+
+    private static byte[] time(long millis) {
+        return tlv(0x18, KERBEROS_TIME.format(Instant.ofEpochMilli(millis)).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] bitString(byte[] bits) {
+        return tlv(0x03, new byte[]{0}, bits);
+    }
+
+    private static byte[] tlv(int tag, byte[]... parts) {
+        byte[] value = concat(parts);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length + 6);
+        out.write(tag);
+        if (value.length < 0x80) {
+            out.write(value.length);
+        } else if (value.length < 0x100) {
+            out.write(0x81);
+            out.write(value.length);
+        } else if (value.length < 0x10000) {
+            out.write(0x82);
+            out.write(value.length >>> 8);
+            out.write(value.length);
+        } else {
+            out.write(0x83);
+            out.write(value.length >>> 16);
+            out.write(value.length >>> 8);
+            out.write(value.length);
+        }
+        out.write(value, 0, value.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] joined = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, joined, offset, part.length);
+            offset += part.length;
+        }
+        return joined;
+    }
+
+    private static final class KdcError extends Exception {
+        final int code;
+        final byte[] data;
+
+        KdcError(int code, String message, byte[] data) {
+            super(message);
+            this.code = code;
+            this.data = data;
+        }
+    }
+
+    // Just enough DER to read an AS-REQ
+    private static final class Der {
+        final int tag;
+        final byte[] value;
+        final byte[] encoded;
+
+        private Der(int tag, byte[] value, byte[] encoded) {
+            this.tag = tag;
+            this.value = value;
+            this.encoded = encoded;
+        }
+
+        static Der read(byte[] buffer) throws IOException {
+            List<Der> values = readAll(buffer);
+            if (values.size() != 1) {
+                throw new IOException("Expected one DER value but found " + values.size());
+            }
+            return values.get(0);
+        }
+
+        private static List<Der> readAll(byte[] buffer) throws IOException {
+            List<Der> values = new ArrayList<>();
+            int pos = 0;
+            while (pos < buffer.length) {
+                int start = pos;
+                int tag = buffer[pos++] & 0xFF;
+                if (pos >= buffer.length) {
+                    throw new IOException("Truncated DER value");
+                }
+                int length = buffer[pos++] & 0xFF;
+                if (length >= 0x80) {
+                    int lengthBytes = length & 0x7F;
+                    if (lengthBytes == 0 || lengthBytes > 3) {
+                        throw new IOException("Unsupported DER length");
+                    }
+                    length = 0;
+                    for (int i = 0; i < lengthBytes; i++) {
+                        length = (length << 8) | (buffer[pos++] & 0xFF);
+                    }
+                }
+                if (pos + length > buffer.length) {
+                    throw new IOException("Truncated DER value");
+                }
+                values.add(new Der(tag, Arrays.copyOfRange(buffer, pos, pos + length),
+                    Arrays.copyOfRange(buffer, start, pos + length)));
+                pos += length;
+            }
+            return values;
+        }
+
+        List<Der> children() throws IOException {
+            return readAll(value);
+        }
+
+        Der optionalField(int number) throws IOException {
+            for (Der child : children()) {
+                if (child.tag == (0xA0 | number)) {
+                    return read(child.value);
+                }
+            }
+            return null;
+        }
+
+        Der field(int number) throws IOException {
+            Der field = optionalField(number);
+            if (field == null) {
+                throw new IOException("Missing field [" + number + "]");
+            }
+            return field;
+        }
+
+        long integer() {
+            return new java.math.BigInteger(value).longValue();
+        }
+
+        String string() {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        // Bit strings drop their unused-bits octet
+        byte[] bytes() {
+            return tag == 0x03 ? Arrays.copyOfRange(value, 1, value.length) : value;
+        }
+
+        long time() {
+            String text = string();
+            if (text.startsWith("1970")) {
+                return 0;
+            }
+            return Instant.from(KERBEROS_TIME.parse(text)).toEpochMilli();
+        }
+    }
+}
\ No newline at end of file
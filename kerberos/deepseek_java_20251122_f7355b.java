@@ -0,0 +1,38 @@
+// ConsumerParker.java
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+// Lets one consumer thread sleep without a timeout while other threads hand it work. The consumer announces
+// itself before it looks for work a last time, and producers unpark it only after their work is visible,
+// so a wake-up cannot fall between that check and the park.
+final class ConsumerParker {
+    private volatile Thread parked;
+
+    // Called by producers after publishing work; a single volatile read while the consumer is busy
+    void wake() {
+        Thread consumer = parked;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    // Consumer thread only. Parks until woken unless hasWork already holds; callers re-check in a loop,
+    // since a stale permit or a spurious wake-up can return early.
+    void park(BooleanSupplier hasWork) {
+        parked = Thread.currentThread();
+        if (!hasWork.getAsBoolean()) {
+            LockSupport.park(this);
+        }
+        parked = null;
+    }
+
+    // As park, but returns no later than deadlineNanos on the System.nanoTime() clock
+    void parkUntil(BooleanSupplier hasWork, long deadlineNanos) {
+        parked = Thread.currentThread();
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining > 0 && !hasWork.getAsBoolean()) {
+            LockSupport.parkNanos(this, remaining);
+        }
+        parked = null;
+    }
+}
\ No newline at end of file
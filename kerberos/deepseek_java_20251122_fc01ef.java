@@ -0,0 +1,323 @@
+// AuthBenchmarkHarness.java
+import com.solacesystems.jcsmp.JCSMPException;
+import com.solacesystems.jcsmp.JCSMPSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.Configuration;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Benchmarks the authentication paths: getSubject and checkHealth under reader contention, quiet and while
+// credentials rotate, Subject.doAs, health-indicator probes, relogin against a local KDC, and connect and
+// reconnect through a fake session factory. Each row reports throughput or latency, bytes allocated per
+// operation from the per-thread allocation counters, and the collections that ran meanwhile.
+// --kdc=embedded logs in through the JDK's Krb5LoginModule against an EmbeddedKdc on 127.0.0.1:88, so it
+// must run as root or with CAP_NET_BIND_SERVICE: KerberosAuthManager sets java.security.krb5.kdc, which
+// cannot carry a port and overrides any krb5.conf that would. --kdc=stub uses the instant stub login
+// module and runs unprivileged.
+// Usage: java AuthBenchmarkHarness [--kdc=embedded] [--threads=1,4,16] [--warmup-ms=1000]
+//                                  [--duration-ms=3000] [--relogins=50] [--connects=50] [--reconnects=500]
+public class AuthBenchmarkHarness {
+    private static final String PRINCIPAL = "bench";
+    private static final String PASSWORD = "secret";
+
+    private final HarnessSupport.Options options;
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final ClientMetrics metrics = new ClientMetrics(new SimpleMeterRegistry());
+    private EmbeddedKdc kdc;
+    private KerberosAuthManager authManager;
+    private SolaceConfig solaceConfig;
+    private SolaceClient client;
+    // Results are folded in here so the JIT cannot drop the calls being measured
+    private volatile long sink;
+
+    AuthBenchmarkHarness(HarnessSupport.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        AuthBenchmarkHarness harness = new AuthBenchmarkHarness(new HarnessSupport.Options(args));
+        try {
+            harness.setUp();
+            harness.run();
+        } finally {
+            harness.tearDown();
+        }
+    }
+
+    void setUp() throws Exception {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not report per-thread allocation");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        KerberosConfig kerberosConfig;
+        Configuration jaasConfig;
+        String kdcMode = options.get("kdc", "embedded");
+        if ("embedded".equals(kdcMode)) {
+            kdc = new EmbeddedKdc(HarnessSupport.REALM, "127.0.0.1");
+            kdc.addPrincipal(PRINCIPAL, PASSWORD);
+            kerberosConfig = new KerberosConfig();
+            kerberosConfig.setKdc(kdc.getHost());
+            kerberosConfig.setRealm(HarnessSupport.REALM);
+            kerberosConfig.setRefreshBufferMs(1000);
+            jaasConfig = new ProgrammaticJaasConfig(PRINCIPAL);
+        } else if ("stub".equals(kdcMode)) {
+            kerberosConfig = HarnessSupport.stubKerberosConfig();
+            jaasConfig = HarnessSupport.stubJaasConfig();
+        } else {
+            throw new IllegalArgumentException("Unknown --kdc=" + kdcMode + ", expected embedded or stub");
+        }
+        kerberosConfig.setRotationGracePeriodMs(100);
+        kerberosConfig.setRefreshAwaitTimeoutMs(TimeUnit.MINUTES.toMillis(1));
+        authManager = new KerberosAuthManager(kerberosConfig, metrics, PRINCIPAL, PASSWORD.toCharArray(), jaasConfig);
+        authManager.start();
+
+        solaceConfig = new SolaceConfig();
+        solaceConfig.setHost("tcp://bench.harness.local:55555");
+        solaceConfig.setReconnectBaseDelayMs(1);
+        solaceConfig.setReconnectMaxDelayMs(10);
+        solaceConfig.setPublisherQueueCapacity(1024);
+        client = newClient("bench");
+        client.connect();
+    }
+
+    void run() throws Exception {
+        KerberosHealthIndicator kerberosHealth = new KerberosHealthIndicator(authManager);
+        SolaceHealthIndicator solaceHealth = new SolaceHealthIndicator(client);
+        PrivilegedAction<Object> action = () -> PRINCIPAL;
+
+        System.out.printf("%-20s %7s %13s %10s %10s %10s %11s %5s %7s%n", "benchmark", "threads",
+            "ops/s", "nsPerOp", "p50us", "p99us", "bytesPerOp", "gcs", "gcMs");
+        for (String count : options.get("threads", "1,4,16").split(",")) {
+            int threadCount = Integer.parseInt(count.trim());
+            throughput("getSubject", threadCount, false, () -> authManager.getSubject());
+            throughput("getSubject+rotate", threadCount, true, () -> authManager.getSubject());
+            throughput("checkHealth", threadCount, false, () -> authManager.checkHealth());
+            throughput("checkHealth+rotate", threadCount, true, () -> authManager.checkHealth());
+            throughput("doAs", threadCount, false, () -> Subject.doAs(authManager.getSubject(), action));
+            throughput("kerberosIndicator", threadCount, false, kerberosHealth::health);
+            throughput("solaceIndicator", threadCount, false, solaceHealth::health);
+        }
+
+        latency("relogin", options.get("relogins", 50), () -> authManager.awaitRefresh());
+        latency("connect", options.get("connects", 50), this::connectNewClient);
+        latency("reconnect", options.get("reconnects", 500), this::dropAndAwaitReconnect);
+    }
+
+    // Every thread calls the operation in a loop; with rotate a background thread relogins back to back
+    private void throughput(String name, int threadCount, boolean rotate, Operation operation) throws Exception {
+        measureThroughput(threadCount, rotate, operation, options.get("warmup-ms", 1000));
+        Result result = measureThroughput(threadCount, rotate, operation, options.get("duration-ms", 3000));
+        System.out.printf("%-20s %7d %13.0f %10.1f %10s %10s %11.1f %5d %7d%n", name, threadCount,
+            result.operations * 1e9 / result.elapsedNanos,
+            (double) result.elapsedNanos * threadCount / result.operations, "-", "-",
+            (double) result.allocatedBytes / result.operations, result.collections, result.collectionMillis);
+    }
+
+    private Result measureThroughput(int threadCount, boolean rotate, Operation operation, long durationMs)
+            throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder operations = new LongAdder();
+        LongAdder allocated = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread worker = new Thread(() -> {
+                long id = Thread.currentThread().getId();
+                long local = 0;
+                long folded = 0;
+                ready.countDown();
+                try {
+                    start.await();
+                    long allocatedBefore = threads.getThreadAllocatedBytes(id);
+                    while (running.get()) {
+                        Object result = operation.run();
+                        folded += result != null ? 1 : 0;
+                        local++;
+                    }
+                    allocated.add(threads.getThreadAllocatedBytes(id) - allocatedBefore);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                operations.add(local);
+                sink += folded;
+            }, "bench-worker-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread rotator = null;
+        if (rotate) {
+            rotator = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        authManager.awaitRefresh();
+                    } catch (KerberosAuthException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, "bench-rotator");
+            rotator.start();
+        }
+
+        ready.await();
+        long[] gcBefore = collections();
+        long startNanos = System.nanoTime();
+        start.countDown();
+        Thread.sleep(durationMs);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        long[] gcAfter = collections();
+        if (rotator != null) {
+            rotator.join();
+        }
+        return new Result(operations.sum(), elapsed, allocated.sum(),
+            gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    // One caller, timed per operation. Allocation covers every thread the operation wakes up, except
+    // the in-process KDC's, which stands in for a remote server.
+    private void latency(String name, long count, Operation operation) throws Exception {
+        for (int i = 0; i < Math.max(1, count / 5); i++) {
+            operation.run();
+        }
+
+        HarnessSupport.LatencyRecorder latencies = new HarnessSupport.LatencyRecorder();
+        Map<Long, Long> allocatedBefore = allocatedByThread();
+        long[] gcBefore = collections();
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            long opStart = System.nanoTime();
+            Object result = operation.run();
+            latencies.record(System.nanoTime() - opStart);
+            sink += result != null ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] gcAfter = collections();
+        long allocated = allocatedSince(allocatedBefore);
+
+        System.out.printf("%-20s %7d %13.1f %10.0f %10.1f %10.1f %11.0f %5d %7d%n", name, 1,
+            count * 1e9 / elapsed, (double) elapsed / count,
+            latencies.percentileMillis(50) * 1000, latencies.percentileMillis(99) * 1000,
+            (double) allocated / count, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    // Startup cost of a new client: session, publisher and subscriptions, without shutting it down
+    private Object connectNewClient() throws Exception {
+        SolaceClient fresh = newClient("bench-connect");
+        try {
+            fresh.connect();
+            return fresh.getConnectionState();
+        } finally {
+            fresh.shutdown();
+        }
+    }
+
+    // DOWN_ERROR on the current session until a new one is CONNECTED
+    private Object dropAndAwaitReconnect() {
+        JCSMPSession dropped = client.currentSession();
+        HarnessSupport.FakeSession.of(dropped).drop("Benchmark injected DOWN_ERROR");
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (client.currentSession() == dropped || !client.isConnected()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Client did not reconnect, state " + client.getConnectionState());
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        return client.currentSession();
+    }
+
+    private SolaceClient newClient(String name) {
+        return new SolaceClient(authManager, solaceConfig, metrics, name, properties -> new BenchSession().newProxy());
+    }
+
+    private Map<Long, Long> allocatedByThread() {
+        Map<Long, Long> allocated = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith("embedded-kdc-")) {
+                allocated.put(thread.getId(), threads.getThreadAllocatedBytes(thread.getId()));
+            }
+        }
+        return allocated;
+    }
+
+    // Threads that exited in between are not counted
+    private long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> after : allocatedByThread().entrySet()) {
+            total += after.getValue() - before.getOrDefault(after.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static long[] collections() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    void tearDown() {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (authManager != null) {
+            authManager.shutdown();
+        }
+        if (kdc != null) {
+            kdc.close();
+        }
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    private static final class Result {
+        final long operations;
+        final long elapsedNanos;
+        final long allocatedBytes;
+        final long collections;
+        final long collectionMillis;
+
+        Result(long operations, long elapsedNanos, long allocatedBytes, long collections, long collectionMillis) {
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+    }
+
+    // The broker's GSS check, reduced to requiring a current TGT in the manager's Subject
+    private final class BenchSession extends HarnessSupport.FakeSession {
+        @Override
+        void connect() throws JCSMPException {
+            KerberosTicket tgt = HarnessSupport.findTGT(authManager.getSubject());
+            if (tgt == null || !tgt.isCurrent()) {
+                throw new JCSMPException("Authentication failed: 401 no current TGT");
+            }
+        }
+    }
+}
\ No newline at end of file